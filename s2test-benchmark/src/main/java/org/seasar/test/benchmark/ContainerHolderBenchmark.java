@@ -0,0 +1,75 @@
+package org.seasar.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.seasar.framework.container.S2Container;
+import org.seasar.test.benchmark.fixture.BenchmarkFixtures;
+import org.seasar.test.context.ContainerCache;
+import org.seasar.test.context.ContainerHolder;
+import org.seasar.test.context.ContainerKey;
+
+/**
+ * {@link ContainerHolder#getContainer(ContainerKey)}のベンチマーク。
+ * <p>
+ * coldはキャッシュが空の状態からの読み込みと破棄を、warmはキャッシュにヒットした場合を計測する。
+ * 
+ * @author m_nori
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContainerHolderBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int componentCount;
+
+	private ClassLoader fixtureClassLoader;
+
+	private ContainerKey key;
+
+	private ContainerCache warmCache;
+
+	@Setup
+	public void setUp() throws Exception {
+		fixtureClassLoader = BenchmarkFixtures.install();
+		key = new ContainerKey(BenchmarkFixtures.diconPath(componentCount));
+		warmCache = new ContainerCache(1);
+		ContainerHolder holder = new ContainerHolder(warmCache);
+		holder.getContainer(key);
+		holder.releaseContainer();
+	}
+
+	@TearDown
+	public void tearDown() {
+		warmCache.clear();
+		Thread.currentThread().setContextClassLoader(fixtureClassLoader);
+	}
+
+	@Benchmark
+	public S2Container getContainerCold() {
+		Thread.currentThread().setContextClassLoader(fixtureClassLoader);
+		ContainerCache cache = new ContainerCache(1);
+		ContainerHolder holder = new ContainerHolder(cache);
+		S2Container container = holder.getContainer(key);
+		holder.releaseContainer();
+		cache.clear();
+		return container;
+	}
+
+	@Benchmark
+	public S2Container getContainerWarm() {
+		ContainerHolder holder = new ContainerHolder(warmCache);
+		S2Container container = holder.getContainer(key);
+		holder.releaseContainer();
+		return container;
+	}
+}
@@ -0,0 +1,61 @@
+package org.seasar.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runners.model.TestClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.seasar.test.benchmark.fixture.BenchmarkFixtures;
+import org.seasar.test.benchmark.fixture.Fields5;
+import org.seasar.test.benchmark.fixture.Fields50;
+import org.seasar.test.benchmark.fixture.Fields500;
+import org.seasar.test.context.ContainerHolder;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.rule.DependencyInjectionRule;
+
+/**
+ * {@link DependencyInjectionRule}によるインジェクションのベンチマーク。
+ * <p>
+ * フィールド数の異なるテストクラスに対し、テストインスタンスごとのインジェクションを計測する。
+ * 
+ * @author m_nori
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DependencyInjectionBenchmark {
+
+	@Param({ "5", "50", "500" })
+	public int fieldCount;
+
+	private Class<?> testClass;
+
+	private TestContext testContext;
+
+	private DependencyInjectionRule rule;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkFixtures.install();
+		testClass = fieldCount == 5 ? Fields5.class : fieldCount == 50 ? Fields50.class
+		        : Fields500.class;
+		testContext = new TestContext(new TestClass(testClass), new ContainerHolder());
+		rule = new DependencyInjectionRule();
+		testContext.setTestInstance(testClass.newInstance());
+		rule.apply(testContext);
+	}
+
+	@Benchmark
+	public Object injectDependencies() throws Exception {
+		Object testInstance = testClass.newInstance();
+		testContext.setTestInstance(testInstance);
+		rule.apply(testContext);
+		return testInstance;
+	}
+}
@@ -0,0 +1,69 @@
+package org.seasar.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.seasar.test.benchmark.fixture.BenchmarkFixtures;
+import org.seasar.test.benchmark.fixture.Fields5;
+import org.seasar.test.context.ContainerHolder;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.rule.DirtyContainerRule;
+import org.seasar.test.rule.DirtyContainerRule.Reset;
+
+/**
+ * {@link DirtyContainerRule}によるコンテナの初期化のベンチマーク。
+ * <p>
+ * コンポーネントを取得した後に初期化し、次のテストでコンテナを使用できるようになるまでを計測する。
+ * 
+ * @author m_nori
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DirtyContainerRuleBenchmark {
+
+	@Param({ "RELOAD", "INSTANCES" })
+	public Reset reset;
+
+	private ClassLoader fixtureClassLoader;
+
+	private TestContext testContext;
+
+	private DirtyContainerRule rule;
+
+	private Statement base;
+
+	private Description description;
+
+	@Setup
+	public void setUp() throws Exception {
+		fixtureClassLoader = BenchmarkFixtures.install();
+		testContext = new TestContext(new TestClass(Fields5.class), new ContainerHolder());
+		rule = new DirtyContainerRule(DirtyContainerRule.Mode.ALL, reset);
+		rule.setTestContext(testContext);
+		base = new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				testContext.getContainer().getComponent("component0");
+			}
+		};
+		description = Description.createTestDescription(Fields5.class, "test");
+	}
+
+	@Benchmark
+	public Object reset() throws Throwable {
+		Thread.currentThread().setContextClassLoader(fixtureClassLoader);
+		rule.apply(base, description).evaluate();
+		return testContext.getContainer();
+	}
+}
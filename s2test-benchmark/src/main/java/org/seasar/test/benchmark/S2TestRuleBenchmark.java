@@ -0,0 +1,55 @@
+package org.seasar.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.junit.runners.model.TestClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.seasar.test.benchmark.fixture.BenchmarkFixtures;
+import org.seasar.test.benchmark.fixture.Fields5;
+import org.seasar.test.context.ContainerHolder;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.rule.S2TestRule;
+
+/**
+ * {@link S2TestRule}によるStatementのラップのベンチマーク。
+ * 
+ * @author m_nori
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class S2TestRuleBenchmark {
+
+	private S2TestRule rule;
+
+	private Statement base;
+
+	private Description description;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkFixtures.install();
+		rule = new S2TestRule() {
+		};
+		rule.setTestContext(new TestContext(new TestClass(Fields5.class), new ContainerHolder()));
+		base = new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+			}
+		};
+		description = Description.createTestDescription(Fields5.class, "test");
+	}
+
+	@Benchmark
+	public void applyAndEvaluate() throws Throwable {
+		rule.apply(base, description).evaluate();
+	}
+}
@@ -0,0 +1,45 @@
+package org.seasar.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.runners.model.TestClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.seasar.test.benchmark.fixture.BenchmarkFixtures;
+import org.seasar.test.benchmark.fixture.Fields50;
+import org.seasar.test.context.TestContextManager;
+
+/**
+ * {@link TestContextManager#prepareTestInstance(Object)}のベンチマーク。
+ * <p>
+ * コンテナはキャッシュ済みの状態で、テストインスタンスの生成ごとにかかる処理を計測する。
+ * 
+ * @author m_nori
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TestContextManagerBenchmark {
+
+	private TestContextManager testContextManager;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkFixtures.install();
+		testContextManager = new TestContextManager(new TestClass(Fields50.class));
+		testContextManager.prepareTestClass();
+		testContextManager.prepareTestInstance(new Fields50());
+	}
+
+	@Benchmark
+	public Object prepareTestInstance() throws Exception {
+		Object testInstance = new Fields50();
+		testContextManager.prepareTestInstance(testInstance);
+		return testInstance;
+	}
+}
@@ -0,0 +1,19 @@
+package org.seasar.test.benchmark.fixture;
+
+/**
+ * ベンチマーク用のdiconファイルに定義するコンポーネント。
+ * 
+ * @author m_nori
+ */
+public class BenchComponent {
+
+	private String name;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+}
@@ -0,0 +1,88 @@
+package org.seasar.test.benchmark.fixture;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * ベンチマークで使用するdiconファイルを生成する。
+ * <p>
+ * 指定した数の{@link BenchComponent}を定義したdiconファイルを一時ディレクトリに生成し、
+ * そのディレクトリをクラスパスに含むクラスローダをコンテキストクラスローダに設定する。
+ * 
+ * @author m_nori
+ */
+public final class BenchmarkFixtures {
+
+	/** インジェクションのベンチマークで使用するdiconファイル。 */
+	public static final String INJECTION_DICON = "s2test-benchmark/components-500.dicon";
+
+	/** 生成するdiconファイルのコンポーネント数。 */
+	private static final int[] COMPONENT_COUNTS = { 10, 100, 500, 1000 };
+
+	private static ClassLoader classLoader;
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * 指定したコンポーネント数のdiconファイルのパスを返却する。
+	 * 
+	 * @param componentCount
+	 *            コンポーネント数
+	 * @return diconファイルのパス
+	 */
+	public static String diconPath(int componentCount) {
+		return "s2test-benchmark/components-" + componentCount + ".dicon";
+	}
+
+	/**
+	 * diconファイルを生成し、コンテキストクラスローダに設定する。
+	 * 
+	 * @return diconファイルを読み込むためのクラスローダ
+	 * @throws IOException
+	 *             diconファイルの生成に失敗した場合
+	 */
+	public static synchronized ClassLoader install() throws IOException {
+		if (classLoader == null) {
+			File root = File.createTempFile("s2test-benchmark", "");
+			if (!root.delete() || !root.mkdirs()) {
+				throw new IOException("failed to create directory:" + root);
+			}
+			File dir = new File(root, "s2test-benchmark");
+			if (!dir.mkdirs()) {
+				throw new IOException("failed to create directory:" + dir);
+			}
+			for (int count : COMPONENT_COUNTS) {
+				writeDicon(new File(dir, "components-" + count + ".dicon"), count);
+			}
+			classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() },
+			        BenchmarkFixtures.class.getClassLoader());
+		}
+		Thread.currentThread().setContextClassLoader(classLoader);
+		return classLoader;
+	}
+
+	private static void writeDicon(File file, int componentCount) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			writer.write("<!DOCTYPE components PUBLIC \"-//SEASAR//DTD S2Container 2.4//EN\"\n");
+			writer.write("  \"http://www.seasar.org/dtd/components24.dtd\">\n");
+			writer.write("<components>\n");
+			for (int i = 0; i < componentCount; i++) {
+				writer.write("\t<component name=\"component" + i + "\" class=\""
+				        + BenchComponent.class.getName() + "\">\n");
+				writer.write("\t\t<property name=\"name\">\"component" + i + "\"</property>\n");
+				writer.write("\t</component>\n");
+			}
+			writer.write("</components>\n");
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.seasar.test.benchmark.fixture;
+
+import org.seasar.test.annotation.RootDicon;
+
+/**
+ * 5個のインジェクション対象フィールドを持つテストクラス。
+ * <p>
+ * {@link BenchmarkFixtures#INJECTION_DICON}のコンポーネントがインジェクションされる。
+ * 
+ * @author m_nori
+ */
+@RootDicon(path = BenchmarkFixtures.INJECTION_DICON)
+public class Fields5 {
+
+	public BenchComponent component0;
+
+	public BenchComponent component1;
+
+	public BenchComponent component2;
+
+	public BenchComponent component3;
+
+	public BenchComponent component4;
+}
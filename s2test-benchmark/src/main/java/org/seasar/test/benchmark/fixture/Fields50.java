@@ -0,0 +1,114 @@
+package org.seasar.test.benchmark.fixture;
+
+import org.seasar.test.annotation.RootDicon;
+
+/**
+ * 50個のインジェクション対象フィールドを持つテストクラス。
+ * <p>
+ * {@link BenchmarkFixtures#INJECTION_DICON}のコンポーネントがインジェクションされる。
+ * 
+ * @author m_nori
+ */
+@RootDicon(path = BenchmarkFixtures.INJECTION_DICON)
+public class Fields50 {
+
+	public BenchComponent component0;
+
+	public BenchComponent component1;
+
+	public BenchComponent component2;
+
+	public BenchComponent component3;
+
+	public BenchComponent component4;
+
+	public BenchComponent component5;
+
+	public BenchComponent component6;
+
+	public BenchComponent component7;
+
+	public BenchComponent component8;
+
+	public BenchComponent component9;
+
+	public BenchComponent component10;
+
+	public BenchComponent component11;
+
+	public BenchComponent component12;
+
+	public BenchComponent component13;
+
+	public BenchComponent component14;
+
+	public BenchComponent component15;
+
+	public BenchComponent component16;
+
+	public BenchComponent component17;
+
+	public BenchComponent component18;
+
+	public BenchComponent component19;
+
+	public BenchComponent component20;
+
+	public BenchComponent component21;
+
+	public BenchComponent component22;
+
+	public BenchComponent component23;
+
+	public BenchComponent component24;
+
+	public BenchComponent component25;
+
+	public BenchComponent component26;
+
+	public BenchComponent component27;
+
+	public BenchComponent component28;
+
+	public BenchComponent component29;
+
+	public BenchComponent component30;
+
+	public BenchComponent component31;
+
+	public BenchComponent component32;
+
+	public BenchComponent component33;
+
+	public BenchComponent component34;
+
+	public BenchComponent component35;
+
+	public BenchComponent component36;
+
+	public BenchComponent component37;
+
+	public BenchComponent component38;
+
+	public BenchComponent component39;
+
+	public BenchComponent component40;
+
+	public BenchComponent component41;
+
+	public BenchComponent component42;
+
+	public BenchComponent component43;
+
+	public BenchComponent component44;
+
+	public BenchComponent component45;
+
+	public BenchComponent component46;
+
+	public BenchComponent component47;
+
+	public BenchComponent component48;
+
+	public BenchComponent component49;
+}
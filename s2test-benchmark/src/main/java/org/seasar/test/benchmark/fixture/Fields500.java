@@ -0,0 +1,1014 @@
+package org.seasar.test.benchmark.fixture;
+
+import org.seasar.test.annotation.RootDicon;
+
+/**
+ * 500個のインジェクション対象フィールドを持つテストクラス。
+ * <p>
+ * {@link BenchmarkFixtures#INJECTION_DICON}のコンポーネントがインジェクションされる。
+ * 
+ * @author m_nori
+ */
+@RootDicon(path = BenchmarkFixtures.INJECTION_DICON)
+public class Fields500 {
+
+	public BenchComponent component0;
+
+	public BenchComponent component1;
+
+	public BenchComponent component2;
+
+	public BenchComponent component3;
+
+	public BenchComponent component4;
+
+	public BenchComponent component5;
+
+	public BenchComponent component6;
+
+	public BenchComponent component7;
+
+	public BenchComponent component8;
+
+	public BenchComponent component9;
+
+	public BenchComponent component10;
+
+	public BenchComponent component11;
+
+	public BenchComponent component12;
+
+	public BenchComponent component13;
+
+	public BenchComponent component14;
+
+	public BenchComponent component15;
+
+	public BenchComponent component16;
+
+	public BenchComponent component17;
+
+	public BenchComponent component18;
+
+	public BenchComponent component19;
+
+	public BenchComponent component20;
+
+	public BenchComponent component21;
+
+	public BenchComponent component22;
+
+	public BenchComponent component23;
+
+	public BenchComponent component24;
+
+	public BenchComponent component25;
+
+	public BenchComponent component26;
+
+	public BenchComponent component27;
+
+	public BenchComponent component28;
+
+	public BenchComponent component29;
+
+	public BenchComponent component30;
+
+	public BenchComponent component31;
+
+	public BenchComponent component32;
+
+	public BenchComponent component33;
+
+	public BenchComponent component34;
+
+	public BenchComponent component35;
+
+	public BenchComponent component36;
+
+	public BenchComponent component37;
+
+	public BenchComponent component38;
+
+	public BenchComponent component39;
+
+	public BenchComponent component40;
+
+	public BenchComponent component41;
+
+	public BenchComponent component42;
+
+	public BenchComponent component43;
+
+	public BenchComponent component44;
+
+	public BenchComponent component45;
+
+	public BenchComponent component46;
+
+	public BenchComponent component47;
+
+	public BenchComponent component48;
+
+	public BenchComponent component49;
+
+	public BenchComponent component50;
+
+	public BenchComponent component51;
+
+	public BenchComponent component52;
+
+	public BenchComponent component53;
+
+	public BenchComponent component54;
+
+	public BenchComponent component55;
+
+	public BenchComponent component56;
+
+	public BenchComponent component57;
+
+	public BenchComponent component58;
+
+	public BenchComponent component59;
+
+	public BenchComponent component60;
+
+	public BenchComponent component61;
+
+	public BenchComponent component62;
+
+	public BenchComponent component63;
+
+	public BenchComponent component64;
+
+	public BenchComponent component65;
+
+	public BenchComponent component66;
+
+	public BenchComponent component67;
+
+	public BenchComponent component68;
+
+	public BenchComponent component69;
+
+	public BenchComponent component70;
+
+	public BenchComponent component71;
+
+	public BenchComponent component72;
+
+	public BenchComponent component73;
+
+	public BenchComponent component74;
+
+	public BenchComponent component75;
+
+	public BenchComponent component76;
+
+	public BenchComponent component77;
+
+	public BenchComponent component78;
+
+	public BenchComponent component79;
+
+	public BenchComponent component80;
+
+	public BenchComponent component81;
+
+	public BenchComponent component82;
+
+	public BenchComponent component83;
+
+	public BenchComponent component84;
+
+	public BenchComponent component85;
+
+	public BenchComponent component86;
+
+	public BenchComponent component87;
+
+	public BenchComponent component88;
+
+	public BenchComponent component89;
+
+	public BenchComponent component90;
+
+	public BenchComponent component91;
+
+	public BenchComponent component92;
+
+	public BenchComponent component93;
+
+	public BenchComponent component94;
+
+	public BenchComponent component95;
+
+	public BenchComponent component96;
+
+	public BenchComponent component97;
+
+	public BenchComponent component98;
+
+	public BenchComponent component99;
+
+	public BenchComponent component100;
+
+	public BenchComponent component101;
+
+	public BenchComponent component102;
+
+	public BenchComponent component103;
+
+	public BenchComponent component104;
+
+	public BenchComponent component105;
+
+	public BenchComponent component106;
+
+	public BenchComponent component107;
+
+	public BenchComponent component108;
+
+	public BenchComponent component109;
+
+	public BenchComponent component110;
+
+	public BenchComponent component111;
+
+	public BenchComponent component112;
+
+	public BenchComponent component113;
+
+	public BenchComponent component114;
+
+	public BenchComponent component115;
+
+	public BenchComponent component116;
+
+	public BenchComponent component117;
+
+	public BenchComponent component118;
+
+	public BenchComponent component119;
+
+	public BenchComponent component120;
+
+	public BenchComponent component121;
+
+	public BenchComponent component122;
+
+	public BenchComponent component123;
+
+	public BenchComponent component124;
+
+	public BenchComponent component125;
+
+	public BenchComponent component126;
+
+	public BenchComponent component127;
+
+	public BenchComponent component128;
+
+	public BenchComponent component129;
+
+	public BenchComponent component130;
+
+	public BenchComponent component131;
+
+	public BenchComponent component132;
+
+	public BenchComponent component133;
+
+	public BenchComponent component134;
+
+	public BenchComponent component135;
+
+	public BenchComponent component136;
+
+	public BenchComponent component137;
+
+	public BenchComponent component138;
+
+	public BenchComponent component139;
+
+	public BenchComponent component140;
+
+	public BenchComponent component141;
+
+	public BenchComponent component142;
+
+	public BenchComponent component143;
+
+	public BenchComponent component144;
+
+	public BenchComponent component145;
+
+	public BenchComponent component146;
+
+	public BenchComponent component147;
+
+	public BenchComponent component148;
+
+	public BenchComponent component149;
+
+	public BenchComponent component150;
+
+	public BenchComponent component151;
+
+	public BenchComponent component152;
+
+	public BenchComponent component153;
+
+	public BenchComponent component154;
+
+	public BenchComponent component155;
+
+	public BenchComponent component156;
+
+	public BenchComponent component157;
+
+	public BenchComponent component158;
+
+	public BenchComponent component159;
+
+	public BenchComponent component160;
+
+	public BenchComponent component161;
+
+	public BenchComponent component162;
+
+	public BenchComponent component163;
+
+	public BenchComponent component164;
+
+	public BenchComponent component165;
+
+	public BenchComponent component166;
+
+	public BenchComponent component167;
+
+	public BenchComponent component168;
+
+	public BenchComponent component169;
+
+	public BenchComponent component170;
+
+	public BenchComponent component171;
+
+	public BenchComponent component172;
+
+	public BenchComponent component173;
+
+	public BenchComponent component174;
+
+	public BenchComponent component175;
+
+	public BenchComponent component176;
+
+	public BenchComponent component177;
+
+	public BenchComponent component178;
+
+	public BenchComponent component179;
+
+	public BenchComponent component180;
+
+	public BenchComponent component181;
+
+	public BenchComponent component182;
+
+	public BenchComponent component183;
+
+	public BenchComponent component184;
+
+	public BenchComponent component185;
+
+	public BenchComponent component186;
+
+	public BenchComponent component187;
+
+	public BenchComponent component188;
+
+	public BenchComponent component189;
+
+	public BenchComponent component190;
+
+	public BenchComponent component191;
+
+	public BenchComponent component192;
+
+	public BenchComponent component193;
+
+	public BenchComponent component194;
+
+	public BenchComponent component195;
+
+	public BenchComponent component196;
+
+	public BenchComponent component197;
+
+	public BenchComponent component198;
+
+	public BenchComponent component199;
+
+	public BenchComponent component200;
+
+	public BenchComponent component201;
+
+	public BenchComponent component202;
+
+	public BenchComponent component203;
+
+	public BenchComponent component204;
+
+	public BenchComponent component205;
+
+	public BenchComponent component206;
+
+	public BenchComponent component207;
+
+	public BenchComponent component208;
+
+	public BenchComponent component209;
+
+	public BenchComponent component210;
+
+	public BenchComponent component211;
+
+	public BenchComponent component212;
+
+	public BenchComponent component213;
+
+	public BenchComponent component214;
+
+	public BenchComponent component215;
+
+	public BenchComponent component216;
+
+	public BenchComponent component217;
+
+	public BenchComponent component218;
+
+	public BenchComponent component219;
+
+	public BenchComponent component220;
+
+	public BenchComponent component221;
+
+	public BenchComponent component222;
+
+	public BenchComponent component223;
+
+	public BenchComponent component224;
+
+	public BenchComponent component225;
+
+	public BenchComponent component226;
+
+	public BenchComponent component227;
+
+	public BenchComponent component228;
+
+	public BenchComponent component229;
+
+	public BenchComponent component230;
+
+	public BenchComponent component231;
+
+	public BenchComponent component232;
+
+	public BenchComponent component233;
+
+	public BenchComponent component234;
+
+	public BenchComponent component235;
+
+	public BenchComponent component236;
+
+	public BenchComponent component237;
+
+	public BenchComponent component238;
+
+	public BenchComponent component239;
+
+	public BenchComponent component240;
+
+	public BenchComponent component241;
+
+	public BenchComponent component242;
+
+	public BenchComponent component243;
+
+	public BenchComponent component244;
+
+	public BenchComponent component245;
+
+	public BenchComponent component246;
+
+	public BenchComponent component247;
+
+	public BenchComponent component248;
+
+	public BenchComponent component249;
+
+	public BenchComponent component250;
+
+	public BenchComponent component251;
+
+	public BenchComponent component252;
+
+	public BenchComponent component253;
+
+	public BenchComponent component254;
+
+	public BenchComponent component255;
+
+	public BenchComponent component256;
+
+	public BenchComponent component257;
+
+	public BenchComponent component258;
+
+	public BenchComponent component259;
+
+	public BenchComponent component260;
+
+	public BenchComponent component261;
+
+	public BenchComponent component262;
+
+	public BenchComponent component263;
+
+	public BenchComponent component264;
+
+	public BenchComponent component265;
+
+	public BenchComponent component266;
+
+	public BenchComponent component267;
+
+	public BenchComponent component268;
+
+	public BenchComponent component269;
+
+	public BenchComponent component270;
+
+	public BenchComponent component271;
+
+	public BenchComponent component272;
+
+	public BenchComponent component273;
+
+	public BenchComponent component274;
+
+	public BenchComponent component275;
+
+	public BenchComponent component276;
+
+	public BenchComponent component277;
+
+	public BenchComponent component278;
+
+	public BenchComponent component279;
+
+	public BenchComponent component280;
+
+	public BenchComponent component281;
+
+	public BenchComponent component282;
+
+	public BenchComponent component283;
+
+	public BenchComponent component284;
+
+	public BenchComponent component285;
+
+	public BenchComponent component286;
+
+	public BenchComponent component287;
+
+	public BenchComponent component288;
+
+	public BenchComponent component289;
+
+	public BenchComponent component290;
+
+	public BenchComponent component291;
+
+	public BenchComponent component292;
+
+	public BenchComponent component293;
+
+	public BenchComponent component294;
+
+	public BenchComponent component295;
+
+	public BenchComponent component296;
+
+	public BenchComponent component297;
+
+	public BenchComponent component298;
+
+	public BenchComponent component299;
+
+	public BenchComponent component300;
+
+	public BenchComponent component301;
+
+	public BenchComponent component302;
+
+	public BenchComponent component303;
+
+	public BenchComponent component304;
+
+	public BenchComponent component305;
+
+	public BenchComponent component306;
+
+	public BenchComponent component307;
+
+	public BenchComponent component308;
+
+	public BenchComponent component309;
+
+	public BenchComponent component310;
+
+	public BenchComponent component311;
+
+	public BenchComponent component312;
+
+	public BenchComponent component313;
+
+	public BenchComponent component314;
+
+	public BenchComponent component315;
+
+	public BenchComponent component316;
+
+	public BenchComponent component317;
+
+	public BenchComponent component318;
+
+	public BenchComponent component319;
+
+	public BenchComponent component320;
+
+	public BenchComponent component321;
+
+	public BenchComponent component322;
+
+	public BenchComponent component323;
+
+	public BenchComponent component324;
+
+	public BenchComponent component325;
+
+	public BenchComponent component326;
+
+	public BenchComponent component327;
+
+	public BenchComponent component328;
+
+	public BenchComponent component329;
+
+	public BenchComponent component330;
+
+	public BenchComponent component331;
+
+	public BenchComponent component332;
+
+	public BenchComponent component333;
+
+	public BenchComponent component334;
+
+	public BenchComponent component335;
+
+	public BenchComponent component336;
+
+	public BenchComponent component337;
+
+	public BenchComponent component338;
+
+	public BenchComponent component339;
+
+	public BenchComponent component340;
+
+	public BenchComponent component341;
+
+	public BenchComponent component342;
+
+	public BenchComponent component343;
+
+	public BenchComponent component344;
+
+	public BenchComponent component345;
+
+	public BenchComponent component346;
+
+	public BenchComponent component347;
+
+	public BenchComponent component348;
+
+	public BenchComponent component349;
+
+	public BenchComponent component350;
+
+	public BenchComponent component351;
+
+	public BenchComponent component352;
+
+	public BenchComponent component353;
+
+	public BenchComponent component354;
+
+	public BenchComponent component355;
+
+	public BenchComponent component356;
+
+	public BenchComponent component357;
+
+	public BenchComponent component358;
+
+	public BenchComponent component359;
+
+	public BenchComponent component360;
+
+	public BenchComponent component361;
+
+	public BenchComponent component362;
+
+	public BenchComponent component363;
+
+	public BenchComponent component364;
+
+	public BenchComponent component365;
+
+	public BenchComponent component366;
+
+	public BenchComponent component367;
+
+	public BenchComponent component368;
+
+	public BenchComponent component369;
+
+	public BenchComponent component370;
+
+	public BenchComponent component371;
+
+	public BenchComponent component372;
+
+	public BenchComponent component373;
+
+	public BenchComponent component374;
+
+	public BenchComponent component375;
+
+	public BenchComponent component376;
+
+	public BenchComponent component377;
+
+	public BenchComponent component378;
+
+	public BenchComponent component379;
+
+	public BenchComponent component380;
+
+	public BenchComponent component381;
+
+	public BenchComponent component382;
+
+	public BenchComponent component383;
+
+	public BenchComponent component384;
+
+	public BenchComponent component385;
+
+	public BenchComponent component386;
+
+	public BenchComponent component387;
+
+	public BenchComponent component388;
+
+	public BenchComponent component389;
+
+	public BenchComponent component390;
+
+	public BenchComponent component391;
+
+	public BenchComponent component392;
+
+	public BenchComponent component393;
+
+	public BenchComponent component394;
+
+	public BenchComponent component395;
+
+	public BenchComponent component396;
+
+	public BenchComponent component397;
+
+	public BenchComponent component398;
+
+	public BenchComponent component399;
+
+	public BenchComponent component400;
+
+	public BenchComponent component401;
+
+	public BenchComponent component402;
+
+	public BenchComponent component403;
+
+	public BenchComponent component404;
+
+	public BenchComponent component405;
+
+	public BenchComponent component406;
+
+	public BenchComponent component407;
+
+	public BenchComponent component408;
+
+	public BenchComponent component409;
+
+	public BenchComponent component410;
+
+	public BenchComponent component411;
+
+	public BenchComponent component412;
+
+	public BenchComponent component413;
+
+	public BenchComponent component414;
+
+	public BenchComponent component415;
+
+	public BenchComponent component416;
+
+	public BenchComponent component417;
+
+	public BenchComponent component418;
+
+	public BenchComponent component419;
+
+	public BenchComponent component420;
+
+	public BenchComponent component421;
+
+	public BenchComponent component422;
+
+	public BenchComponent component423;
+
+	public BenchComponent component424;
+
+	public BenchComponent component425;
+
+	public BenchComponent component426;
+
+	public BenchComponent component427;
+
+	public BenchComponent component428;
+
+	public BenchComponent component429;
+
+	public BenchComponent component430;
+
+	public BenchComponent component431;
+
+	public BenchComponent component432;
+
+	public BenchComponent component433;
+
+	public BenchComponent component434;
+
+	public BenchComponent component435;
+
+	public BenchComponent component436;
+
+	public BenchComponent component437;
+
+	public BenchComponent component438;
+
+	public BenchComponent component439;
+
+	public BenchComponent component440;
+
+	public BenchComponent component441;
+
+	public BenchComponent component442;
+
+	public BenchComponent component443;
+
+	public BenchComponent component444;
+
+	public BenchComponent component445;
+
+	public BenchComponent component446;
+
+	public BenchComponent component447;
+
+	public BenchComponent component448;
+
+	public BenchComponent component449;
+
+	public BenchComponent component450;
+
+	public BenchComponent component451;
+
+	public BenchComponent component452;
+
+	public BenchComponent component453;
+
+	public BenchComponent component454;
+
+	public BenchComponent component455;
+
+	public BenchComponent component456;
+
+	public BenchComponent component457;
+
+	public BenchComponent component458;
+
+	public BenchComponent component459;
+
+	public BenchComponent component460;
+
+	public BenchComponent component461;
+
+	public BenchComponent component462;
+
+	public BenchComponent component463;
+
+	public BenchComponent component464;
+
+	public BenchComponent component465;
+
+	public BenchComponent component466;
+
+	public BenchComponent component467;
+
+	public BenchComponent component468;
+
+	public BenchComponent component469;
+
+	public BenchComponent component470;
+
+	public BenchComponent component471;
+
+	public BenchComponent component472;
+
+	public BenchComponent component473;
+
+	public BenchComponent component474;
+
+	public BenchComponent component475;
+
+	public BenchComponent component476;
+
+	public BenchComponent component477;
+
+	public BenchComponent component478;
+
+	public BenchComponent component479;
+
+	public BenchComponent component480;
+
+	public BenchComponent component481;
+
+	public BenchComponent component482;
+
+	public BenchComponent component483;
+
+	public BenchComponent component484;
+
+	public BenchComponent component485;
+
+	public BenchComponent component486;
+
+	public BenchComponent component487;
+
+	public BenchComponent component488;
+
+	public BenchComponent component489;
+
+	public BenchComponent component490;
+
+	public BenchComponent component491;
+
+	public BenchComponent component492;
+
+	public BenchComponent component493;
+
+	public BenchComponent component494;
+
+	public BenchComponent component495;
+
+	public BenchComponent component496;
+
+	public BenchComponent component497;
+
+	public BenchComponent component498;
+
+	public BenchComponent component499;
+}
@@ -2,10 +2,14 @@ package org.seasar.test;
 
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 import org.seasar.framework.log.Logger;
+import org.seasar.test.annotation.ConcurrentMethods;
+import org.seasar.test.context.LeakDetector;
 import org.seasar.test.context.TestContextManager;
+import org.seasar.test.timing.TimingRecorder;
 
 /**
  * S2JUnitを実行するためのRunnerクラス。
@@ -35,6 +39,11 @@ public class S2JUnit4ClassRunner extends BlockJUnit4ClassRunner {
 		if (logger.isDebugEnabled()) {
 			logger.debug("testContextManager created");
 		}
+		ConcurrentMethods concurrentMethods = clazz.getAnnotation(ConcurrentMethods.class);
+		if (concurrentMethods != null) {
+			setScheduler(new VirtualThreadScheduler(concurrentMethods.value()));
+			testContextManager.setConcurrent(true);
+		}
 	}
 
 	/**
@@ -65,11 +74,49 @@ public class S2JUnit4ClassRunner extends BlockJUnit4ClassRunner {
 
 	/**
 	 * テストクラスの生成処理に{@link TestContextManager #prepareTestClass()}をフックさせる。
+	 * <p>
+	 * テストクラス終了時には{@link TestContextManager #afterTestClass()}を呼び出し、
+	 * 実行したスレッドのコンテキストクラスローダを元に戻す。<br>
+	 * {@link LeakDetector}が有効な場合は、テストクラスの正常終了後に破棄したコンテナのリークを確認する。
 	 */
 	@Override
 	protected Statement classBlock(final RunNotifier notifier) {
 		testContextManager.prepareTestClass();
-		return super.classBlock(notifier);
+		final Statement statement = super.classBlock(notifier);
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+				TimingRecorder.getInstance().setCurrentClass(getTestClass().getJavaClass());
+				LeakDetector leakDetector = LeakDetector.getInstance();
+				leakDetector.beforeTestClass(getTestClass().getJavaClass());
+				try {
+					statement.evaluate();
+				} finally {
+					testContextManager.afterTestClass();
+					Thread.currentThread().setContextClassLoader(originalClassLoader);
+				}
+				leakDetector.afterTestClass(getTestClass().getJavaClass());
+			}
+		};
+	}
+
+	/**
+	 * 実行中のテストメソッドを{@link TimingRecorder}に設定する。
+	 * <p>
+	 * {@link ConcurrentMethods}によりテストクラスと別のスレッドで実行される場合があるため、テストクラスも合わせて設定する。
+	 */
+	@Override
+	protected void runChild(FrameworkMethod method, RunNotifier notifier) {
+		TimingRecorder recorder = TimingRecorder.getInstance();
+		recorder.setCurrentClass(getTestClass().getJavaClass());
+		recorder.setCurrentMethod(method.getName());
+		try {
+			super.runChild(method, notifier);
+		} finally {
+			recorder.setCurrentMethod(null);
+			testContextManager.afterTestMethod();
+		}
 	}
 
 	/**
@@ -0,0 +1,264 @@
+package org.seasar.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.seasar.framework.log.Logger;
+import org.seasar.test.timing.DurationHistory;
+
+/**
+ * 同じコンテナを使用するテストクラスをまとめて実行し、分割して実行することのできるSuite。
+ * <p>
+ * テストクラスはRootDicon、{@link org.seasar.test.annotation.ContextConfiguration}のinclude等から決まる
+ * {@link org.seasar.test.context.ContainerKey}ごとにまとめ、同じコンテナを使用するテストクラスが連続して実行されるようにする。<br>
+ * システムプロパティ{@value #SHARD_COUNT_PROPERTY}に分割数、{@value #SHARD_INDEX_PROPERTY}に0から始まる番号を指定すると、
+ * そのうち1つ分のテストクラスのみを実行する。<br>
+ * 分割はすべてのノードで同じ結果となるよう、ノード間で共有された入力のみから決める。<br>
+ * システムプロパティ{@value #SHARD_HISTORY_PROPERTY}に実行時間の記録ファイルを指定した場合は、
+ * 記録された実行時間を元に、実行時間の長いまとまりから順に合計の最も短い分割へ割り当てる。
+ * 記録がないテストクラスは記録のあるテストクラスの平均を使用する。<br>
+ * 指定しない場合は{@link org.seasar.test.context.ContainerKey}の文字列表現のハッシュ値により割り当てる。<br>
+ * 各ノードの実行時間は{@link DurationHistory}に記録されるため、それを集めたものを次回の{@value #SHARD_HISTORY_PROPERTY}に指定できる。
+ * 
+ * @author m_nori
+ */
+public class S2ShardSuite extends S2Suite {
+	/** 分割数を指定するシステムプロパティ。 */
+	public static final String SHARD_COUNT_PROPERTY = "s2test.shard.count";
+
+	/** 実行する分割の番号を指定するシステムプロパティ。 */
+	public static final String SHARD_INDEX_PROPERTY = "s2test.shard.index";
+
+	/** 分割に使用する実行時間の記録ファイルを指定するシステムプロパティ。 */
+	public static final String SHARD_HISTORY_PROPERTY = "s2test.shard.history";
+
+	/** 実行時間の記録が1件もない場合に使用する実行時間(ミリ秒)。 */
+	protected static final long DEFAULT_DURATION = 1000L;
+
+	private static final Logger logger = Logger.getLogger(S2ShardSuite.class);
+
+	private final DurationHistory durationHistory;
+
+	private final DurationHistory shardHistory;
+
+	private final List<Runner> shardChildren;
+
+	/**
+	 * テスト起動時に呼び出されるコンストラクタ。
+	 * 
+	 * @param klass
+	 *            Suiteとなるクラス
+	 * @param builder
+	 *            Runnerを生成するビルダー
+	 * @throws InitializationError
+	 *             コンストラクタ初期化例外
+	 */
+	public S2ShardSuite(Class<?> klass, RunnerBuilder builder) throws InitializationError {
+		super(klass, builder);
+		durationHistory = new DurationHistory();
+		shardHistory = createShardHistory();
+		int shardCount = Integer.getInteger(SHARD_COUNT_PROPERTY, 1);
+		int shardIndex = Integer.getInteger(SHARD_INDEX_PROPERTY, 0);
+		if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+			throw new InitializationError("invalid shard " + shardIndex + "/" + shardCount);
+		}
+		shardChildren = selectShard(groupByContainer(super.getChildren()), shardCount, shardIndex);
+	}
+
+	@Override
+	protected List<Runner> getChildren() {
+		return shardChildren != null ? shardChildren : super.getChildren();
+	}
+
+	/**
+	 * 子のRunnerの実行時間を記録する。
+	 */
+	@Override
+	protected void runChild(Runner runner, RunNotifier notifier) {
+		long start = System.nanoTime();
+		try {
+			super.runChild(runner, notifier);
+		} finally {
+			durationHistory.record(getName(runner), (System.nanoTime() - start) / 1000000L);
+		}
+	}
+
+	/**
+	 * テストの実行後に実行時間を保存する。
+	 */
+	@Override
+	public void run(RunNotifier notifier) {
+		try {
+			super.run(notifier);
+		} finally {
+			durationHistory.save();
+		}
+	}
+
+	/**
+	 * 同じコンテナを使用するRunnerをまとめる。
+	 * <p>
+	 * まとまりは最初に現れた順に並べる。S2JUnit4ClassRunner以外のRunnerはそれぞれ1つのまとまりとする。
+	 * 
+	 * @param runners
+	 *            Runner
+	 * @return まとめたRunner
+	 */
+	protected List<List<Runner>> groupByContainer(List<Runner> runners) {
+		Map<Object, List<Runner>> groups = new LinkedHashMap<Object, List<Runner>>();
+		for (Runner runner : runners) {
+			Object key =
+			        runner instanceof S2JUnit4ClassRunner ? ((S2JUnit4ClassRunner) runner)
+			                .getTestContextManager().getTestContext().getContainerKey() : runner;
+			List<Runner> group = groups.get(key);
+			if (group == null) {
+				group = new ArrayList<Runner>();
+				groups.put(key, group);
+			}
+			group.add(runner);
+		}
+		return new ArrayList<List<Runner>>(groups.values());
+	}
+
+	/**
+	 * 分割に使用する実行時間の記録を生成する。
+	 * 
+	 * @return 実行時間の記録、指定されていない場合はnull
+	 */
+	private static DurationHistory createShardHistory() {
+		String path = System.getProperty(SHARD_HISTORY_PROPERTY);
+		if (path == null) {
+			return null;
+		}
+		File file = new File(path);
+		if (!file.isFile()) {
+			logger.warn("shard history not found:" + file);
+			return null;
+		}
+		return new DurationHistory(file);
+	}
+
+	/**
+	 * 指定された番号の分割に含まれるRunnerを返却する。
+	 * <p>
+	 * 実行時間の記録が指定されていない場合は{@link #selectShardByHash(List, int, int)}により分割する。
+	 * 
+	 * @param groups
+	 *            同じコンテナを使用するRunnerのまとまり
+	 * @param shardCount
+	 *            分割数
+	 * @param shardIndex
+	 *            分割の番号
+	 * @return 分割に含まれるRunner
+	 */
+	protected List<Runner> selectShard(List<List<Runner>> groups, int shardCount, int shardIndex) {
+		if (shardHistory == null) {
+			return selectShardByHash(groups, shardCount, shardIndex);
+		}
+		final Map<List<Runner>, Long> groupDurations = new LinkedHashMap<List<Runner>, Long>();
+		long defaultDuration = getAverageDuration(groups);
+		for (List<Runner> group : groups) {
+			long total = 0;
+			for (Runner runner : group) {
+				Long duration = shardHistory.getDuration(getName(runner));
+				total += duration != null ? duration : defaultDuration;
+			}
+			groupDurations.put(group, total);
+		}
+		List<List<Runner>> sorted = new ArrayList<List<Runner>>(groups);
+		Collections.sort(sorted, new Comparator<List<Runner>>() {
+			public int compare(List<Runner> o1, List<Runner> o2) {
+				int result = groupDurations.get(o2).compareTo(groupDurations.get(o1));
+				return result != 0 ? result : getName(o1.get(0)).compareTo(getName(o2.get(0)));
+			}
+		});
+		long[] loads = new long[shardCount];
+		Map<List<Runner>, Integer> assigned = new LinkedHashMap<List<Runner>, Integer>();
+		for (List<Runner> group : sorted) {
+			int target = 0;
+			for (int i = 1; i < shardCount; i++) {
+				if (loads[i] < loads[target]) {
+					target = i;
+				}
+			}
+			loads[target] += groupDurations.get(group);
+			assigned.put(group, target);
+		}
+		List<Runner> result = new ArrayList<Runner>();
+		for (List<Runner> group : groups) {
+			if (assigned.get(group) == shardIndex) {
+				result.addAll(group);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("shard " + shardIndex + "/" + shardCount + ": " + result.size()
+			        + " class(es), estimated " + loads[shardIndex] + "ms");
+		}
+		return result;
+	}
+
+	/**
+	 * 指定された番号の分割に含まれるRunnerを、まとまりのキーのハッシュ値により返却する。
+	 * <p>
+	 * キーにはS2JUnit4ClassRunnerの場合はコンテナのキーの文字列表現、それ以外の場合はテストクラス名を使用する。
+	 * 
+	 * @param groups
+	 *            同じコンテナを使用するRunnerのまとまり
+	 * @param shardCount
+	 *            分割数
+	 * @param shardIndex
+	 *            分割の番号
+	 * @return 分割に含まれるRunner
+	 */
+	protected List<Runner> selectShardByHash(List<List<Runner>> groups, int shardCount,
+	        int shardIndex) {
+		List<Runner> result = new ArrayList<Runner>();
+		for (List<Runner> group : groups) {
+			if ((getGroupName(group).hashCode() & Integer.MAX_VALUE) % shardCount == shardIndex) {
+				result.addAll(group);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("shard " + shardIndex + "/" + shardCount + ": " + result.size()
+			        + " class(es) by hash");
+		}
+		return result;
+	}
+
+	private static String getGroupName(List<Runner> group) {
+		Runner runner = group.get(0);
+		if (runner instanceof S2JUnit4ClassRunner) {
+			return ((S2JUnit4ClassRunner) runner).getTestContextManager().getTestContext()
+			        .getContainerKey().toString();
+		}
+		return getName(runner);
+	}
+
+	private long getAverageDuration(List<List<Runner>> groups) {
+		long total = 0;
+		int count = 0;
+		for (List<Runner> group : groups) {
+			for (Runner runner : group) {
+				Long duration = shardHistory.getDuration(getName(runner));
+				if (duration != null) {
+					total += duration;
+					count++;
+				}
+			}
+		}
+		return count > 0 ? total / count : DEFAULT_DURATION;
+	}
+
+	private static String getName(Runner runner) {
+		return runner.getDescription().getDisplayName();
+	}
+}
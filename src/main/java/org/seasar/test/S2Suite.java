@@ -0,0 +1,83 @@
+package org.seasar.test;
+
+import java.util.List;
+
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.seasar.test.context.ContainerPrefetcher;
+
+/**
+ * S2JUnit4ClassRunnerで実行するテストクラスをまとめて実行するためのSuite。
+ * <p>
+ * {@link Suite.SuiteClasses}が付与されている場合はその値を、付与されていない場合は
+ * {@link org.junit.experimental.runners.Enclosed}と同様に内部クラスを対象とする。<br>
+ * {@link ContainerPrefetcher}が有効な場合、実行中のテストクラスの後に続くテストクラスのコンテナを先読みする。
+ * 
+ * @author m_nori
+ */
+public class S2Suite extends Suite {
+
+	/**
+	 * テスト起動時に呼び出されるコンストラクタ。
+	 * 
+	 * @param klass
+	 *            Suiteとなるクラス
+	 * @param builder
+	 *            Runnerを生成するビルダー
+	 * @throws InitializationError
+	 *             コンストラクタ初期化例外
+	 */
+	public S2Suite(Class<?> klass, RunnerBuilder builder) throws InitializationError {
+		super(builder, klass, getSuiteClasses(klass));
+	}
+
+	/**
+	 * 子のRunnerを実行する前に、後続のテストクラスのコンテナを先読みする。
+	 */
+	@Override
+	protected void runChild(Runner runner, RunNotifier notifier) {
+		prefetch(runner);
+		super.runChild(runner, notifier);
+	}
+
+	/**
+	 * 指定されたRunnerの後に続くテストクラスのコンテナを先読みする。
+	 * 
+	 * @param runner
+	 *            実行するRunner
+	 */
+	protected void prefetch(Runner runner) {
+		ContainerPrefetcher prefetcher = ContainerPrefetcher.getInstance();
+		if (!prefetcher.isEnabled()) {
+			return;
+		}
+		List<Runner> children = getChildren();
+		int index = children.indexOf(runner);
+		for (int i = index + 1; i < children.size() && i <= index + prefetcher.getDepth(); i++) {
+			Runner next = children.get(i);
+			if (next instanceof S2JUnit4ClassRunner) {
+				S2JUnit4ClassRunner s2Runner = (S2JUnit4ClassRunner) next;
+				prefetcher.prefetch(s2Runner.getTestContextManager().getTestContext()
+				        .getContainerKey(), s2Runner.getTestClass().getJavaClass());
+			}
+		}
+	}
+
+	/**
+	 * 実行対象のテストクラスを返却する。
+	 * 
+	 * @param klass
+	 *            Suiteとなるクラス
+	 * @return 実行対象のテストクラス
+	 */
+	protected static Class<?>[] getSuiteClasses(Class<?> klass) {
+		SuiteClasses annotation = klass.getAnnotation(SuiteClasses.class);
+		if (annotation != null) {
+			return annotation.value();
+		}
+		return klass.getClasses();
+	}
+}
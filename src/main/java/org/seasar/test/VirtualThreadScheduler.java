@@ -0,0 +1,134 @@
+package org.seasar.test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.runners.model.RunnerScheduler;
+import org.seasar.framework.log.Logger;
+
+/**
+ * テストメソッドを仮想スレッドで実行するスケジューラ。
+ * <p>
+ * テストメソッドごとに仮想スレッドを生成し、同時に実行する数を上限までに制限する。<br>
+ * 上限に達している場合、次のテストメソッドは実行中のいずれかが終了するまで開始しない。<br>
+ * 仮想スレッドを使用できないJDKの場合は、上限と同じ数のスレッドを持つスレッドプールで実行する。<br>
+ * 各スレッドのコンテキストクラスローダにはスケジュールしたスレッドのものを設定する。
+ * 
+ * @author m_nori
+ */
+public class VirtualThreadScheduler implements RunnerScheduler {
+
+	private static final Logger logger = Logger.getLogger(VirtualThreadScheduler.class);
+
+	private final Semaphore permits;
+
+	private final ExecutorService executor;
+
+	private final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+	/**
+	 * VirtualThreadSchedulerを生成する。
+	 * 
+	 * @param maxConcurrency
+	 *            同時に実行するテストメソッドの数
+	 */
+	public VirtualThreadScheduler(int maxConcurrency) {
+		int limit = Math.max(1, maxConcurrency);
+		this.permits = new Semaphore(limit);
+		this.executor = createExecutor(limit);
+	}
+
+	/**
+	 * 仮想スレッドのExecutorServiceを生成する。
+	 * <p>
+	 * 仮想スレッドを使用できない場合はスレッドプールを生成する。
+	 * 
+	 * @param limit
+	 *            同時に実行するテストメソッドの数
+	 * @return ExecutorService
+	 */
+	protected ExecutorService createExecutor(int limit) {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("virtual threads are not available, use " + limit + " threads");
+			}
+			return Executors.newFixedThreadPool(limit, new SchedulerThreadFactory());
+		}
+	}
+
+	/**
+	 * テストメソッドの実行をスケジュールする。
+	 * <p>
+	 * 同時に実行する数が上限に達している場合は、空きができるまで待機する。
+	 */
+	public void schedule(final Runnable childStatement) {
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while scheduling test", e);
+		}
+		try {
+			futures.add(executor.submit(new Runnable() {
+				public void run() {
+					Thread.currentThread().setContextClassLoader(classLoader);
+					try {
+						childStatement.run();
+					} finally {
+						permits.release();
+					}
+				}
+			}));
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * スケジュールしたすべてのテストメソッドの終了を待機する。
+	 */
+	public void finished() {
+		try {
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					logger.warn("failed to run test", e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			futures.clear();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 仮想スレッドを使用できない場合のスレッドを生成する。
+	 * 
+	 * @author m_nori
+	 */
+	private static class SchedulerThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "s2test-scheduler-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package org.seasar.test.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.seasar.test.VirtualThreadScheduler;
+
+/**
+ * テストメソッドを並行に実行する。
+ * <p>
+ * テストクラスに付与すると、テストメソッドごとに仮想スレッドを生成して実行する。<br>
+ * 仮想スレッドを使用できないJDKの場合は、同時に実行する数のスレッドプールで実行する。<br>
+ * テストインスタンスとTestContextはテストメソッドごとに生成される。
+ * 
+ * @see VirtualThreadScheduler
+ * @author m_nori
+ */
+@Target({ ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface ConcurrentMethods {
+	/**
+	 * 同時に実行するテストメソッドの数。
+	 */
+	int value() default 64;
+}
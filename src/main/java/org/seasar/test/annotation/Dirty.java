@@ -9,6 +9,9 @@ import org.seasar.test.rule.DirtyContainerRule;
 
 /**
  * コンテナが汚れたことを表す。
+ * <p>
+ * componentsまたはtypesを指定した場合、コンテナ全体ではなく指定したコンポーネントのみを初期化する。<br>
+ * 指定した名前または型に一致するコンポーネントが存在しない場合はテストが失敗する。
  * 
  * @see DirtyContainerRule
  * @author m_nori
@@ -16,4 +19,14 @@ import org.seasar.test.rule.DirtyContainerRule;
 @Target({ ElementType.METHOD })
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Dirty {
+
+	/**
+	 * 初期化するコンポーネント名。
+	 */
+	String[] components() default {};
+
+	/**
+	 * 初期化するコンポーネントの型。
+	 */
+	Class<?>[] types() default {};
 }
@@ -0,0 +1,25 @@
+package org.seasar.test.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.seasar.test.rule.DependencyInjectionRule;
+
+/**
+ * テストインスタンスへのインジェクションを遅延させる。
+ * <p>
+ * テストクラスに付与すると、インターフェース型のフィールドにはコンポーネントの代わりにプロキシを設定し、
+ * 最初にメソッドが呼び出された時点でコンテナからコンポーネントを取得する。<br>
+ * インターフェース以外の型のフィールドは通常通りインジェクションされる。
+ * 
+ * @see DependencyInjectionRule
+ * @author m_nori
+ */
+@Target({ ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface LazyInjection {
+}
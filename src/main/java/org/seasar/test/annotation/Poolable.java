@@ -0,0 +1,30 @@
+package org.seasar.test.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.seasar.test.context.PrototypePool;
+
+/**
+ * prototypeのコンポーネントをテストメソッド間で再利用する。
+ * <p>
+ * コンポーネントのクラスに付与すると、テストインスタンスにインジェクションしたインスタンスを
+ * テストメソッドの終了時にリセットメソッドで初期化し、次のテストインスタンスにインジェクションする。<br>
+ * diconファイルではcomponentタグに<code>&lt;meta name="s2test.poolable"&gt;"reset"&lt;/meta&gt;</code>
+ * を指定することでも同様に再利用できる。
+ * 
+ * @see PrototypePool
+ * @author m_nori
+ */
+@Target({ ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface Poolable {
+	/**
+	 * 再利用する前に呼び出す引数なしのメソッド名。空の場合は呼び出さない。
+	 */
+	String resetMethod() default "reset";
+}
@@ -0,0 +1,300 @@
+package org.seasar.test.context;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.StringUtil;
+
+/**
+ * ルートパッケージ配下のクラスパス上のリソースを保持するインデックス。
+ * <p>
+ * warm deployではコンポーネント名から規約に従って複数のクラス名を組み立て、存在するかどうかをクラスローダに問い合わせる。<br>
+ * このインデックスはルートパッケージ配下に存在するリソースを保持し、存在しないリソースの問い合わせをjarファイルを参照せずに判定する。<br>
+ * jarファイルの内容は更新日時とサイズをキーに{@link #CACHE_DIR_PROPERTY}で指定したディレクトリに保存し、
+ * 別のJVMでも再読み込みしない。ディレクトリは常にファイルシステムを直接参照する。
+ *
+ * @author m_nori
+ */
+public class ClasspathIndex {
+    /** インデックスを保存するディレクトリを指定するシステムプロパティ。 */
+    public static final String CACHE_DIR_PROPERTY = "s2test.cacheDir";
+
+    /** インデックスを保存するディレクトリのデフォルト値。 */
+    public static final String DEFAULT_CACHE_DIR = "target/s2test";
+
+    /** インデックスのファイル名。 */
+    protected static final String INDEX_FILE_NAME = "classpath-index.properties";
+
+    /** ルートパッケージを保存するプロパティ名。 */
+    protected static final String ROOT_PACKAGES_KEY = "rootPackages";
+
+    /** jarファイルの内容を保存するプロパティ名の接頭辞。 */
+    protected static final String JAR_KEY_PREFIX = "jar.";
+
+    private static final Logger logger = Logger.getLogger(ClasspathIndex.class);
+
+    private static final ClasspathIndex instance =
+        new ClasspathIndex(new File(System.getProperty(
+            CACHE_DIR_PROPERTY, DEFAULT_CACHE_DIR),
+            INDEX_FILE_NAME));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("s2test-classpath-index") {
+            @Override
+            public void run() {
+                instance.save();
+            }
+        });
+    }
+
+    private final File indexFile;
+
+    private final Set<String> rootPaths = new LinkedHashSet<String>();
+
+    private final Map<File, Set<String>> jarEntries =
+        new HashMap<File, Set<String>>();
+
+    private Properties stored;
+
+    private boolean modified;
+
+    /**
+     * ClasspathIndexを生成する。
+     *
+     * @param indexFile インデックスを保存するファイル
+     */
+    public ClasspathIndex(File indexFile) {
+        this.indexFile = indexFile;
+        String names = getStored().getProperty(ROOT_PACKAGES_KEY);
+        if (!StringUtil.isEmpty(names)) {
+            for (String name : names.split(",")) {
+                rootPaths.add(toPath(name));
+            }
+        }
+    }
+
+    /**
+     * JVM全体で共有するインデックスを返却する。
+     *
+     * @return インデックス
+     */
+    public static ClasspathIndex getInstance() {
+        return instance;
+    }
+
+    /**
+     * インデックスの対象とするルートパッケージを追加する。
+     * <p>
+     * ルートパッケージが変わった場合、保持しているjarファイルの内容は破棄する。
+     *
+     * @param rootPackageNames ルートパッケージ名
+     */
+    public synchronized void addRootPackageNames(String[] rootPackageNames) {
+        if (rootPackageNames == null) {
+            return;
+        }
+        boolean added = false;
+        for (String name : rootPackageNames) {
+            added |= rootPaths.add(toPath(name));
+        }
+        if (added) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("root packages:" + rootPaths);
+            }
+            jarEntries.clear();
+            modified = true;
+        }
+    }
+
+    /**
+     * リソースが存在するかどうかを返却する。
+     *
+     * @param roots クラスパスのディレクトリとjarファイル
+     * @param resourceName リソース名
+     * @return 存在するかどうか、ルートパッケージ配下でないため判定できない場合は<code>null</code>
+     */
+    public synchronized Boolean exists(List<File> roots, String resourceName) {
+        if (!isIndexed(resourceName)) {
+            return null;
+        }
+        for (File root : roots) {
+            if (root.isDirectory()) {
+                if (new File(root, resourceName).isFile()) {
+                    return Boolean.TRUE;
+                }
+            } else if (root.isFile() && getJarEntries(root).contains(resourceName)) {
+                return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    /**
+     * 更新されたインデックスをファイルに保存する。
+     * <p>
+     * 並列に実行している他のJVMが読み込み途中のファイルを参照しないよう、一時ファイルに書き込んでから置き換える。
+     */
+    public synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty(ROOT_PACKAGES_KEY, getRootPackageValue());
+        for (Map.Entry<File, Set<String>> entry : jarEntries.entrySet()) {
+            File jar = entry.getKey();
+            StringBuilder sb = new StringBuilder();
+            sb.append(jar.lastModified()).append('|').append(jar.length());
+            for (String name : entry.getValue()) {
+                sb.append('|').append(name);
+            }
+            properties.setProperty(JAR_KEY_PREFIX + jar.getAbsolutePath(),
+                sb.toString());
+        }
+        File dir = indexFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            return;
+        }
+        try {
+            File temp = new File(indexFile.getPath() + "." + System.nanoTime() + ".tmp");
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                properties.store(out, "s2test classpath index");
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(indexFile)) {
+                indexFile.delete();
+                if (!temp.renameTo(indexFile)) {
+                    temp.delete();
+                    logger.warn("failed to save classpath index:" + indexFile);
+                    return;
+                }
+            }
+            modified = false;
+        } catch (IOException e) {
+            logger.warn("failed to save classpath index:" + indexFile, e);
+        }
+    }
+
+    private boolean isIndexed(String resourceName) {
+        for (String rootPath : rootPaths) {
+            if (resourceName.startsWith(rootPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> getJarEntries(File jar) {
+        Set<String> entries = jarEntries.get(jar);
+        if (entries != null) {
+            return entries;
+        }
+        entries = parse(jar, getStored().getProperty(JAR_KEY_PREFIX
+            + jar.getAbsolutePath()));
+        if (entries == null) {
+            entries = read(jar);
+            modified = true;
+        }
+        jarEntries.put(jar, entries);
+        return entries;
+    }
+
+    private Set<String> parse(File jar, String value) {
+        if (value == null
+            || !getRootPackageValue().equals(getStored().getProperty(ROOT_PACKAGES_KEY))) {
+            return null;
+        }
+        String[] values = value.split("\\|");
+        if (values.length < 2) {
+            return null;
+        }
+        try {
+            if (Long.parseLong(values[0]) != jar.lastModified()
+                || Long.parseLong(values[1]) != jar.length()) {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Set<String> entries = new HashSet<String>();
+        for (int i = 2; i < values.length; i++) {
+            entries.add(values[i]);
+        }
+        return entries;
+    }
+
+    private Set<String> read(File jar) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("index jar:" + jar);
+        }
+        Set<String> entries = new HashSet<String>();
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();) {
+                    String name = e.nextElement().getName();
+                    if (isIndexed(name)) {
+                        entries.add(name);
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            logger.warn("failed to read jar:" + jar, e);
+            return Collections.emptySet();
+        }
+        return entries;
+    }
+
+    private String getRootPackageValue() {
+        StringBuilder sb = new StringBuilder();
+        for (String rootPath : rootPaths) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(rootPath.substring(0, rootPath.length() - 1).replace('/', '.'));
+        }
+        return sb.toString();
+    }
+
+    private Properties getStored() {
+        if (stored == null) {
+            stored = new Properties();
+            if (indexFile.exists()) {
+                try {
+                    InputStream in = new FileInputStream(indexFile);
+                    try {
+                        stored.load(in);
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    logger.warn("failed to load classpath index:" + indexFile, e);
+                }
+            }
+        }
+        return stored;
+    }
+
+    private static String toPath(String packageName) {
+        return packageName.replace('.', '/') + "/";
+    }
+}
@@ -0,0 +1,192 @@
+package org.seasar.test.context;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.log.Logger;
+
+/**
+ * コンテナのコンポーネント定義を名前と型から引くためのインデックス。
+ * <p>
+ * コンテナとincludeされた子コンテナのコンポーネント定義を1度だけたどり、
+ * コンポーネント名と、コンポーネントのクラスが代入可能な型(スーパークラスとインターフェース)から
+ * コンポーネント定義を取得できるようにする。<br>
+ * 優先順位は{@link S2Container}と同じく、親のコンテナ、includeした順の子コンテナの順である。
+ * 同じコンテナに同じキーのコンポーネントが複数ある場合や、クラスが特定できないコンポーネントがある場合はコンテナに問い合わせる。<br>
+ * インデックスに存在しないキーはコンテナに1度だけ問い合わせ、存在しない場合もその結果を保持する。
+ * warm deployによりコンポーネントが生成される場合も、コンテナに問い合わせることで生成される。<br>
+ * rootのコンテナのコンポーネント数が変わった場合はインデックスを作り直す。
+ *
+ * @author m_nori
+ */
+public class ComponentIndex {
+
+    private static final Logger logger = Logger.getLogger(ComponentIndex.class);
+
+    private static final Object AMBIGUOUS = new Object();
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final Map<S2Container, WeakReference<ComponentIndex>> instances =
+        new WeakHashMap<S2Container, WeakReference<ComponentIndex>>();
+
+    private final S2Container container;
+
+    private final Map<Object, Object> index = new HashMap<Object, Object>();
+
+    private final Map<Object, Object> resolved = new HashMap<Object, Object>();
+
+    private boolean typesComplete;
+
+    private int rootSize = -1;
+
+    /**
+     * ComponentIndexを生成する。
+     *
+     * @param container 対象のコンテナ
+     */
+    public ComponentIndex(S2Container container) {
+        this.container = container;
+    }
+
+    /**
+     * コンテナに対応するインデックスを返却する。
+     * <p>
+     * インデックスは弱参照で保持するため、使用する側で参照を保持すること。
+     * {@link ContainerCache}に格納されたコンテナのインデックスはキャッシュのエントリが保持する。
+     *
+     * @param container コンテナ
+     * @return インデックス
+     */
+    public static synchronized ComponentIndex getInstance(S2Container container) {
+        WeakReference<ComponentIndex> ref = instances.get(container);
+        ComponentIndex componentIndex = ref != null ? ref.get() : null;
+        if (componentIndex == null) {
+            componentIndex = new ComponentIndex(container);
+            instances.put(container, new WeakReference<ComponentIndex>(componentIndex));
+        }
+        return componentIndex;
+    }
+
+    /**
+     * コンポーネント定義が存在するかどうかを返却する。
+     *
+     * @param key コンポーネント名または型
+     * @return 存在するかどうか
+     */
+    public boolean hasComponentDef(Object key) {
+        return getComponentDef(key) != null;
+    }
+
+    /**
+     * コンポーネント定義を返却する。
+     *
+     * @param key コンポーネント名または型
+     * @return コンポーネント定義、存在しない場合は<code>null</code>
+     */
+    public synchronized ComponentDef getComponentDef(Object key) {
+        if (rootSize != container.getComponentDefSize()) {
+            build();
+        }
+        Object componentDef = index.get(key);
+        if (componentDef == null || componentDef == AMBIGUOUS) {
+            componentDef = resolved.get(key);
+            if (componentDef == null) {
+                componentDef =
+                    container.hasComponentDef(key)
+                        ? container.getComponentDef(key)
+                        : NOT_FOUND;
+                resolved.put(key, componentDef);
+                if (rootSize != container.getComponentDefSize()) {
+                    build();
+                }
+            }
+        }
+        return componentDef == NOT_FOUND ? null : (ComponentDef) componentDef;
+    }
+
+    /**
+     * インデックスを作成する。
+     */
+    protected void build() {
+        index.clear();
+        resolved.clear();
+        typesComplete = true;
+        rootSize = container.getComponentDefSize();
+        Map<S2Container, Boolean> visited = new IdentityHashMap<S2Container, Boolean>();
+        add(container, visited);
+        if (!typesComplete) {
+            for (Map.Entry<Object, Object> entry : index.entrySet()) {
+                if (entry.getKey() instanceof Class<?>) {
+                    entry.setValue(AMBIGUOUS);
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("component index:" + container.getPath() + " keys="
+                + index.size());
+        }
+    }
+
+    private void add(S2Container target, Map<S2Container, Boolean> visited) {
+        if (visited.put(target, Boolean.TRUE) != null) {
+            return;
+        }
+        Map<Object, ComponentDef> local = new HashMap<Object, ComponentDef>();
+        for (int i = 0; i < target.getComponentDefSize(); i++) {
+            ComponentDef componentDef = target.getComponentDef(i);
+            String name = componentDef.getComponentName();
+            if (name != null) {
+                put(local, name, componentDef);
+                String namespace = target.getNamespace();
+                if (namespace != null) {
+                    put(local, namespace + "." + name, componentDef);
+                }
+            }
+            Class<?> componentClass = componentDef.getComponentClass();
+            if (componentClass == null) {
+                typesComplete = false;
+                continue;
+            }
+            for (Class<?> clazz = componentClass; clazz != null && clazz != Object.class; clazz =
+                clazz.getSuperclass()) {
+                put(local, clazz, componentDef);
+                addInterfaces(local, clazz, componentDef);
+            }
+        }
+        for (Map.Entry<Object, ComponentDef> entry : local.entrySet()) {
+            if (!index.containsKey(entry.getKey())) {
+                index.put(entry.getKey(), entry.getValue() != null
+                    ? entry.getValue() : AMBIGUOUS);
+            }
+        }
+        for (int i = 0; i < target.getChildSize(); i++) {
+            add(target.getChild(i), visited);
+        }
+    }
+
+    private void addInterfaces(Map<Object, ComponentDef> local, Class<?> clazz,
+            ComponentDef componentDef) {
+        for (Class<?> interfaceClass : clazz.getInterfaces()) {
+            put(local, interfaceClass, componentDef);
+            addInterfaces(local, interfaceClass, componentDef);
+        }
+    }
+
+    /**
+     * 同じコンテナ内で異なるコンポーネントが同じキーを持つ場合は<code>null</code>とする。
+     */
+    private static void put(Map<Object, ComponentDef> local, Object key,
+            ComponentDef componentDef) {
+        if (!local.containsKey(key)) {
+            local.put(key, componentDef);
+        } else if (local.get(key) != componentDef) {
+            local.put(key, null);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.seasar.test.context;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.InstanceDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.log.Logger;
+
+/**
+ * コンポーネントのインスタンスを破棄し、コンテナを再読み込みせずに初期化する。
+ * <p>
+ * {@link #resetAll(S2Container)}はコンテナのすべてのコンポーネントのインスタンスを破棄する。
+ * コンポーネント定義はそのまま使用し、次に取得した際にインスタンスが再生成される。<br>
+ * diconファイルの再読み込みやクラスの再ロードは行わないが、{@link S2Container#register(Object)}にて
+ * 直接登録されたインスタンスは破棄されずにそのまま保持される。
+ * <p>
+ * {@link #reset(S2Container, String[], Class[])}は名前または型で指定したコンポーネントのインスタンスのみを破棄する。<br>
+ * 初期化したコンポーネントを自動バインディングにより保持しているsingletonのコンポーネントも合わせて破棄し、
+ * 再生成時に新しいインスタンスがインジェクションされるようにする。<br>
+ * 依存関係は自動バインディングの規約(インターフェース型のプロパティ、またはコンポーネント名と同名のプロパティ)から判断するため、
+ * diconファイルのpropertyタグで明示的に設定したものは対象とならない。
+ *
+ * @author m_nori
+ */
+public class ComponentResetter {
+
+    private static final Logger logger =
+        Logger.getLogger(ComponentResetter.class);
+
+    private final Map<Class<?>, List<Property>> propertyCache =
+        new HashMap<Class<?>, List<Property>>();
+
+    /**
+     * コンテナとその子コンテナのすべてのコンポーネントのインスタンスを破棄する。
+     * <p>
+     * 読み込み後に追加されたコンポーネント定義(warm deployにて生成されたもの等)も対象とする。
+     *
+     * @param container 対象のコンテナ
+     * @return インスタンスを破棄したコンポーネント定義
+     */
+    public List<ComponentDef> resetAll(S2Container container) {
+        PrototypePool.clear(container);
+        List<ComponentDef> componentDefs = collectComponentDefs(container);
+        destroy(componentDefs);
+        return componentDefs;
+    }
+
+    /**
+     * 指定したコンポーネントとそれに依存するコンポーネントを初期化する。
+     * <p>
+     * 一致するコンポーネント定義が存在しない名前または型が指定された場合は、
+     * 一致したコンポーネントを初期化した後に例外をスローする。
+     *
+     * @param container 対象のコンテナ
+     * @param names 初期化するコンポーネント名
+     * @param types 初期化するコンポーネントの型
+     * @return 初期化したコンポーネント定義
+     * @throws IllegalArgumentException 一致するコンポーネント定義が存在しない名前または型が指定された場合
+     */
+    public List<ComponentDef> reset(S2Container container, String[] names,
+            Class<?>[] types) {
+        PrototypePool.clear(container);
+        List<ComponentDef> componentDefs = collectComponentDefs(container);
+        Map<ComponentDef, Boolean> resetDefs =
+            new IdentityHashMap<ComponentDef, Boolean>();
+        List<ComponentDef> result = new ArrayList<ComponentDef>();
+        Set<Object> unmatched = new LinkedHashSet<Object>();
+        unmatched.addAll(Arrays.asList(names));
+        unmatched.addAll(Arrays.asList(types));
+        for (ComponentDef componentDef : componentDefs) {
+            if (matches(componentDef, names, types, unmatched)) {
+                resetDefs.put(componentDef, Boolean.TRUE);
+                result.add(componentDef);
+            }
+        }
+        for (int i = 0; i < result.size(); i++) {
+            ComponentDef target = result.get(i);
+            for (ComponentDef componentDef : componentDefs) {
+                if (!resetDefs.containsKey(componentDef)
+                    && isSingleton(componentDef)
+                    && dependsOn(componentDef, target)) {
+                    resetDefs.put(componentDef, Boolean.TRUE);
+                    result.add(componentDef);
+                }
+            }
+        }
+        destroy(result);
+        if (!unmatched.isEmpty()) {
+            throw new IllegalArgumentException("component not found:"
+                + unmatched);
+        }
+        return result;
+    }
+
+    /**
+     * コンポーネントのインスタンスを後ろから順に破棄する。
+     *
+     * @param componentDefs コンポーネント定義
+     */
+    private static void destroy(List<ComponentDef> componentDefs) {
+        for (int i = componentDefs.size() - 1; i >= 0; i--) {
+            ComponentDef componentDef = componentDefs.get(i);
+            if (logger.isDebugEnabled()) {
+                logger.debug("reset component:"
+                    + componentDef.getComponentName() + "("
+                    + componentDef.getComponentClass() + ")");
+            }
+            try {
+                componentDef.destroy();
+            } catch (RuntimeException e) {
+                logger.warn("failed to destroy component:"
+                    + componentDef.getComponentName(), e);
+            }
+        }
+    }
+
+    /**
+     * コンテナとその子コンテナに含まれるコンポーネント定義を取得する。
+     * <p>
+     * 複数箇所からincludeされている子コンテナは1度だけ取得する。<br>
+     * {@link SharedIncludeProvider}により共有されている子コンテナは対象としない。
+     *
+     * @param container 対象のコンテナ
+     * @return コンポーネント定義
+     */
+    protected static List<ComponentDef> collectComponentDefs(
+            S2Container container) {
+        List<ComponentDef> result = new ArrayList<ComponentDef>();
+        collectComponentDefs(container, result,
+            new IdentityHashMap<S2Container, Boolean>());
+        return result;
+    }
+
+    private static void collectComponentDefs(S2Container container,
+            List<ComponentDef> result, Map<S2Container, Boolean> visited) {
+        if (visited.put(container, Boolean.TRUE) != null) {
+            return;
+        }
+        for (int i = 0; i < container.getChildSize(); i++) {
+            S2Container child = container.getChild(i);
+            if (!SharedIncludeProvider.isShared(child)) {
+                collectComponentDefs(child, result, visited);
+            }
+        }
+        for (int i = 0; i < container.getComponentDefSize(); i++) {
+            result.add(container.getComponentDef(i));
+        }
+    }
+
+    private boolean matches(ComponentDef componentDef, String[] names,
+            Class<?>[] types, Set<Object> unmatched) {
+        boolean matched = false;
+        String componentName = componentDef.getComponentName();
+        if (componentName != null) {
+            for (String name : names) {
+                if (componentName.equals(name)) {
+                    unmatched.remove(name);
+                    matched = true;
+                }
+            }
+        }
+        Class<?> componentClass = componentDef.getComponentClass();
+        if (componentClass != null) {
+            for (Class<?> type : types) {
+                if (type.isAssignableFrom(componentClass)) {
+                    unmatched.remove(type);
+                    matched = true;
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static boolean isSingleton(ComponentDef componentDef) {
+        InstanceDef instanceDef = componentDef.getInstanceDef();
+        return instanceDef == null
+            || InstanceDef.SINGLETON_NAME.equals(instanceDef.getName());
+    }
+
+    /**
+     * コンポーネントが対象のコンポーネントを自動バインディングにより保持するかどうかを返却する。
+     *
+     * @param componentDef コンポーネント定義
+     * @param target 対象のコンポーネント定義
+     * @return 保持するかどうか
+     */
+    protected boolean dependsOn(ComponentDef componentDef, ComponentDef target) {
+        Class<?> componentClass = componentDef.getComponentClass();
+        Class<?> targetClass = target.getComponentClass();
+        if (componentClass == null || targetClass == null) {
+            return false;
+        }
+        for (Property property : getProperties(componentClass)) {
+            if (!property.type.isAssignableFrom(targetClass)) {
+                continue;
+            }
+            if (property.type.isInterface()
+                || property.name.equals(target.getComponentName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Property> getProperties(Class<?> componentClass) {
+        List<Property> properties = propertyCache.get(componentClass);
+        if (properties != null) {
+            return properties;
+        }
+        properties = new ArrayList<Property>();
+        for (Method method : componentClass.getMethods()) {
+            String name = method.getName();
+            if (name.length() > 3 && name.startsWith("set")
+                && method.getParameterTypes().length == 1
+                && !Modifier.isStatic(method.getModifiers())) {
+                properties.add(new Property(Character.toLowerCase(name.charAt(3))
+                    + name.substring(4), method.getParameterTypes()[0]));
+            }
+        }
+        for (Field field : componentClass.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers())
+                && !Modifier.isFinal(field.getModifiers())) {
+                properties.add(new Property(field.getName(), field.getType()));
+            }
+        }
+        propertyCache.put(componentClass, properties);
+        return properties;
+    }
+
+    private static class Property {
+        final String name;
+
+        final Class<?> type;
+
+        Property(String name, Class<?> type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package org.seasar.test.context;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
+import org.seasar.framework.log.Logger;
+import org.seasar.test.timing.TimingRecorder;
+
+/**
+ * JVM全体で共有するコンテナのキャッシュ。
+ * <p>
+ * {@link ContainerKey}ごとに読み込んだコンテナを保持し、同じdiconを使用するテストクラス間で使い回す。<br>
+ * 保持数の上限を超えた場合は最も長く使用されていないコンテナを破棄する。<br>
+ * 上限はシステムプロパティ{@value #MAX_SIZE_PROPERTY}で指定できる。
+ * <p>
+ * {@link #acquire(ContainerKey)}にて使用中となっているコンテナは破棄の対象とせず、
+ * {@link #release(Entry)}にてすべての使用が終了した時点で破棄する。<br>
+ * すべてのメソッドはスレッドセーフである。
+ *
+ * @author m_nori
+ */
+public class ContainerCache {
+    /** 保持数の上限を指定するシステムプロパティ。 */
+    public static final String MAX_SIZE_PROPERTY = "s2test.containerCache.maxSize";
+
+    /** 保持数の上限のデフォルト値。 */
+    protected static final int DEFAULT_MAX_SIZE = 8;
+
+    private static final Logger logger = Logger.getLogger(ContainerCache.class);
+
+    private static final ContainerCache instance =
+        new ContainerCache(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("s2test-container-cache") {
+            @Override
+            public void run() {
+                instance.clear();
+            }
+        });
+    }
+
+    private final Map<ContainerKey, Entry> entries =
+        new LinkedHashMap<ContainerKey, Entry>(16, 0.75f, true);
+
+    private int maxSize;
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * キャッシュを生成する。
+     *
+     * @param maxSize 保持数の上限
+     */
+    public ContainerCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * JVM全体で共有するキャッシュを返却する。
+     *
+     * @return キャッシュ
+     */
+    public static ContainerCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * キャッシュされたコンテナを返却する。
+     *
+     * @param key コンテナのキー
+     * @return キャッシュされたコンテナ、存在しない場合は<code>null</code>
+     */
+    public synchronized Entry get(ContainerKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * キャッシュされたコンテナを使用中にして返却する。
+     * <p>
+     * 使用が終了した場合は{@link #release(Entry)}を呼び出すこと。
+     *
+     * @param key コンテナのキー
+     * @return キャッシュされたコンテナ、存在しない場合は<code>null</code>
+     */
+    public synchronized Entry acquire(ContainerKey key) {
+        Entry entry = get(key);
+        if (entry != null) {
+            entry.useCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * キャッシュされたコンテナを返却する。
+     * <p>
+     * ヒット数、ミス数は加算しない。
+     *
+     * @param key コンテナのキー
+     * @return キャッシュされたコンテナ、存在しない場合は<code>null</code>
+     */
+    public synchronized Entry peek(ContainerKey key) {
+        return entries.get(key);
+    }
+
+    /**
+     * コンテナをキャッシュする。
+     * <p>
+     * 同じキーのコンテナが既に存在する場合は古いコンテナを破棄する。
+     *
+     * @param key コンテナのキー
+     * @param entry キャッシュするコンテナ
+     */
+    public synchronized void put(ContainerKey key, Entry entry) {
+        Entry old = entries.put(key, entry);
+        if (old != null && old != entry) {
+            retire(old);
+        }
+        evict();
+    }
+
+    /**
+     * コンテナを使用中にしてキャッシュする。
+     * <p>
+     * 使用が終了した場合は{@link #release(Entry)}を呼び出すこと。
+     *
+     * @param key コンテナのキー
+     * @param entry キャッシュするコンテナ
+     */
+    public synchronized void putAndAcquire(ContainerKey key, Entry entry) {
+        entry.useCount++;
+        put(key, entry);
+    }
+
+    /**
+     * コンテナの使用を終了する。
+     * <p>
+     * キャッシュから除外されているコンテナの場合、すべての使用が終了した時点で破棄する。
+     *
+     * @param entry 使用していたコンテナ
+     */
+    public synchronized void release(Entry entry) {
+        if (entry.useCount > 0) {
+            entry.useCount--;
+        }
+        if (entry.useCount == 0) {
+            if (entry.retired) {
+                entry.destroy();
+            } else {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * 他で使用されていないコンテナのすべてのコンポーネントのインスタンスを破棄する。
+     * <p>
+     * 呼び出し元以外がコンテナを使用中の場合はインスタンスを破棄せずに<code>false</code>を返却する。<br>
+     * 破棄が終了するまでコンテナを使用中にすることはできない。
+     *
+     * @param entry 対象となるコンテナ
+     * @param ownUseCount 呼び出し元による使用数
+     * @return インスタンスを破棄した場合は<code>true</code>
+     * @see ComponentResetter#resetAll(S2Container)
+     */
+    public synchronized boolean resetInstances(Entry entry, int ownUseCount) {
+        if (entry.useCount > ownUseCount) {
+            return false;
+        }
+        if (!entry.isDestroyed()) {
+            new ComponentResetter().resetAll(entry.getContainer());
+        }
+        return true;
+    }
+
+    /**
+     * コンテナをキャッシュから除外して破棄する。
+     * <p>
+     * 使用中の場合はすべての使用が終了した時点で破棄する。
+     *
+     * @param key コンテナのキー
+     */
+    public synchronized void invalidate(ContainerKey key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            retire(entry);
+        }
+    }
+
+    /**
+     * rootとなるdiconファイルが一致するコンテナをすべてキャッシュから除外して破棄する。
+     * <p>
+     * includeやENVの値が異なるコンテナも対象とする。使用中の場合はすべての使用が終了した時点で破棄する。
+     *
+     * @param rootDicon rootとなるdiconファイル
+     * @return 除外したコンテナのキー
+     */
+    public synchronized List<ContainerKey> invalidateAll(String rootDicon) {
+        List<ContainerKey> keys = new ArrayList<ContainerKey>();
+        for (Iterator<Map.Entry<ContainerKey, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<ContainerKey, Entry> entry = it.next();
+            if (StringUtils.equals(rootDicon, entry.getKey().getRootDicon())) {
+                it.remove();
+                keys.add(entry.getKey());
+                retire(entry.getValue());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * キャッシュしているすべてのコンテナを破棄する。
+     */
+    public synchronized void clear() {
+        List<Entry> values = new ArrayList<Entry>(entries.values());
+        entries.clear();
+        for (Entry entry : values) {
+            entry.destroy();
+        }
+    }
+
+    /**
+     * 上限を超えている場合に、使用中でないコンテナを古い順に破棄する。
+     */
+    private void evict() {
+        Iterator<Map.Entry<ContainerKey, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Map.Entry<ContainerKey, Entry> eldest = it.next();
+            if (eldest.getValue().useCount > 0) {
+                continue;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("evict container:" + eldest.getKey());
+            }
+            it.remove();
+            eldest.getValue().destroy();
+        }
+    }
+
+    /**
+     * キャッシュから除外したコンテナを破棄する。
+     *
+     * @param entry キャッシュから除外したコンテナ
+     */
+    private void retire(Entry entry) {
+        if (entry.useCount == 0) {
+            entry.destroy();
+        } else {
+            entry.retired = true;
+        }
+    }
+
+    /**
+     * キャッシュしているコンテナの数を返却する。
+     *
+     * @return キャッシュしているコンテナの数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 保持数の上限を返却する。
+     *
+     * @return 保持数の上限
+     */
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 保持数の上限を設定する。
+     * <p>
+     * 1未満の値を指定した場合は1として扱う。
+     *
+     * @param maxSize 保持数の上限
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        evict();
+    }
+
+    /**
+     * キャッシュにヒットした回数を返却する。
+     *
+     * @return キャッシュにヒットした回数
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * キャッシュにヒットしなかった回数を返却する。
+     *
+     * @return キャッシュにヒットしなかった回数
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * キャッシュされるコンテナと読み込み時のクラスローダ。
+     *
+     * @author m_nori
+     */
+    public static class Entry {
+        private final S2Container container;
+
+        private final ClassLoader classLoader;
+
+        private final ComponentIndex componentIndex;
+
+        private volatile boolean destroyed;
+
+        private int useCount;
+
+        private boolean retired;
+
+        /**
+         * エントリを生成する。
+         *
+         * @param container コンテナ
+         * @param classLoader コンテナを読み込んだクラスローダ
+         */
+        public Entry(S2Container container, ClassLoader classLoader) {
+            this.container = container;
+            this.classLoader = classLoader;
+            this.componentIndex = ComponentIndex.getInstance(container);
+        }
+
+        /**
+         * コンテナを返却する。
+         *
+         * @return コンテナ
+         */
+        public S2Container getContainer() {
+            return container;
+        }
+
+        /**
+         * コンテナを読み込んだクラスローダを返却する。
+         *
+         * @return コンテナを読み込んだクラスローダ
+         */
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        /**
+         * コンテナのコンポーネントのインデックスを返却する。
+         *
+         * @return インデックス
+         */
+        public ComponentIndex getComponentIndex() {
+            return componentIndex;
+        }
+
+        /**
+         * コンテナが破棄されているかどうかを返却する。
+         *
+         * @return コンテナが破棄されているか
+         */
+        public boolean isDestroyed() {
+            return destroyed;
+        }
+
+        /**
+         * コンテナを破棄する。
+         * <p>
+         * コンテナの{@link PrototypePool}も合わせて破棄する。<br>
+         * {@link SingletonS2ContainerFactory}に設定されている場合は設定を解除する。
+         */
+        protected void destroy() {
+            if (destroyed) {
+                return;
+            }
+            destroyed = true;
+            long start = TimingRecorder.start();
+            try {
+                PrototypePool.clear(container);
+                try {
+                    container.destroy();
+                } catch (RuntimeException e) {
+                    logger.warn("failed to destroy container", e);
+                }
+            } finally {
+                TimingRecorder.stop("container.destroy", start);
+            }
+            synchronized (SingletonS2ContainerFactory.class) {
+                if (SingletonS2ContainerFactory.hasContainer()
+                    && SingletonS2ContainerFactory.getContainer() == container) {
+                    SingletonS2ContainerFactory.setContainer(null);
+                }
+            }
+            LeakDetector.getInstance().track(container, classLoader);
+        }
+    }
+}
@@ -1,11 +1,10 @@
 package org.seasar.test.context;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.seasar.framework.container.S2Container;
-import org.seasar.framework.container.deployer.ComponentDeployerFactory;
-import org.seasar.framework.container.deployer.ExternalComponentDeployerProvider;
 import org.seasar.framework.container.external.servlet.HttpServletExternalContextComponentDefRegister;
 import org.seasar.framework.container.factory.S2ContainerFactory;
 import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
@@ -14,9 +13,23 @@ import org.seasar.framework.convention.impl.NamingConventionImpl;
 import org.seasar.framework.env.Env;
 import org.seasar.framework.log.Logger;
 import org.seasar.framework.unit.UnitClassLoader;
-import org.seasar.framework.util.ResourceUtil;
 import org.seasar.framework.util.StringUtil;
+import org.seasar.test.context.include.ContainerInclude;
+import org.seasar.test.timing.TimingRecorder;
 
+/**
+ * テストで使用するコンテナを管理する。
+ * <p>
+ * 読み込んだコンテナは{@link ContainerCache}に格納し、同じ{@link ContainerKey}を持つテストクラス間で共有する。<br>
+ * {@link #setWarmDeploy(boolean)}、{@link #setRegisterNamingConvention(boolean)}の設定はキーに含めるため、
+ * 設定の異なるContainerHolder間でコンテナは共有されない。<br>
+ * {@link S2ContainerFactory}の設定やProvider、{@link SingletonS2ContainerFactory}、ComponentDeployerFactoryのProviderは
+ * JVM全体で共有されるため、JVM全体で同時に使用できるコンテナは1つのみとする。<br>
+ * 並列に実行しているテストクラスは、同じコンテナを使用する場合は同時に実行し、
+ * 異なるコンテナを使用する場合は他のテストクラスがコンテナを解放するまで{@link #getContainer(ContainerKey)}で待機する。
+ *
+ * @author m_nori
+ */
 public class ContainerHolder {
     /** 環境が設定されているファイルのパス。 */
     protected static final String ENV_PATH = "env_ut.txt";
@@ -24,51 +37,232 @@ public class ContainerHolder {
     /** 環境が設定されていない場合のデフォルト値。 */
     protected static final String ENV_VALUE = "ut";
 
+    /** warm deployの場合に{@link S2ContainerFactory}の設定に使用するファイルのパス。 */
+    protected static final String WARM_DEPLOY_DICON = "warmdeploy.dicon";
+
     private static final Logger logger =
         Logger.getLogger(ContainerHolder.class);
 
-    private Map<String, S2Container> containerMap =
-        new HashMap<String, S2Container>();
+    /**
+     * コンテナの読み込みと使用中のコンテナの切り替えを排他するためのロック。
+     * <p>
+     * S2ContainerFactory、SingletonS2ContainerFactory、ComponentDeployerFactoryはstaticな状態を持つため、
+     * 並列実行時も読み込みと切り替えはこのロックを取得したスレッドのみが行う。
+     */
+    protected static final Object LOAD_LOCK = new Object();
+
+    /** 使用中のコンテナ。{@link #LOAD_LOCK}で排他する。 */
+    private static final Map<ContainerHolder, ContainerCache.Entry> activeEntries =
+        new IdentityHashMap<ContainerHolder, ContainerCache.Entry>();
+
+    private final ContainerCache containerCache;
+
+    private ContainerKey activeKey;
+
+    private ContainerCache.Entry activeEntry;
+
+    private volatile Thread activeThread;
 
     private boolean warmDeploy = true;
 
     private boolean registerNamingConvention = true;
 
     public ContainerHolder() {
+        this(ContainerCache.getInstance());
+    }
+
+    /**
+     * 使用するキャッシュを指定してContainerHolderを生成する。
+     *
+     * @param containerCache コンテナのキャッシュ
+     */
+    public ContainerHolder(ContainerCache containerCache) {
+        this.containerCache = containerCache;
         initEnv();
     }
 
     /**
      * コンテナを初期化する。
      * <p>
-     * 次にgetContanierを行った場合再読み込みが行われる。
+     * 次にgetContanierを行った場合再読み込みが行われる。<br>
+     * diconファイルを使用するコンテナは、@ContextConfigurationのincludeやENVの値に関わらずすべて破棄する。
      *
      * @param rootDicon 対象となるdiconファイル
      */
     public void destroyContainer(String rootDicon) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("destroy container:" + rootDicon);
+        }
+        synchronized (this) {
+            if (activeKey != null
+                && StringUtils.equals(rootDicon, activeKey.getRootDicon())) {
+                releaseContainer();
+            }
+        }
+        containerCache.invalidateAll(rootDicon);
+    }
+
+    /**
+     * コンテナを初期化する。
+     * <p>
+     * キャッシュからコンテナを除外して破棄するため、次にgetContanierを行った場合再読み込みが行われる。<br>
+     * 他のテストクラスが同じコンテナを使用中の場合、破棄はその使用が終了した時点で行われる。
+     *
+     * @param key 対象となるコンテナのキー
+     */
+    public void destroyContainer(ContainerKey key) {
         if (logger.isDebugEnabled()) {
             logger.debug("destroy container");
         }
-        S2Container container = containerMap.get(rootDicon);
-        if (container != null) {
-            container.destroy();
-            containerMap.remove(rootDicon);
+        key = resolveKey(key);
+        synchronized (this) {
+            if (key.equals(activeKey)) {
+                releaseContainer();
+            }
+        }
+        containerCache.invalidate(key);
+    }
+
+    /**
+     * コンテナのすべてのコンポーネントのインスタンスを破棄する。
+     * <p>
+     * diconファイルの再読み込みは行わず、次に取得した際にコンポーネント定義からインスタンスが再生成される。<br>
+     * 他のテストクラスが同じコンテナを使用中の場合は、使用中のインスタンスを破棄しないよう
+     * {@link #destroyContainer(ContainerKey)}と同様にキャッシュから除外し、破棄はその使用が終了した時点で行われる。<br>
+     * コンテナが読み込まれていない場合は何もしない。
+     *
+     * @param key 対象となるコンテナのキー
+     * @see ComponentResetter#resetAll(S2Container)
+     */
+    public void resetInstances(ContainerKey key) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("reset instances");
+        }
+        key = resolveKey(key);
+        ContainerCache.Entry entry;
+        synchronized (this) {
+            entry = key.equals(activeKey) ? activeEntry : null;
+        }
+        int ownUseCount = entry == null ? 0 : 1;
+        if (entry == null) {
+            entry = containerCache.peek(key);
+        }
+        if (entry == null || entry.isDestroyed()) {
+            return;
+        }
+        if (!containerCache.resetInstances(entry, ownUseCount)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("container is in use, destroy instead of reset:" + key);
+            }
+            destroyContainer(key);
         }
     }
 
     /**
      * コンテナを返却する。
+     * <p>
+     * 現在のENVの値を使用し、@ContextConfigurationのincludeを持たないテストクラスと同じコンテナを返却する。
      *
      * @param rootDicon 対象となるdiconファイル
      * @return コンテナ
+     * @see TestContext#getContainerKey()
      */
     public S2Container getContainer(String rootDicon) {
-        S2Container container = containerMap.get(rootDicon);
-        if (container == null) {
-            container = loadContainer(rootDicon);
-            containerMap.put(rootDicon, container);
+        return getContainer(new ContainerKey(rootDicon, null, Env.getValue()));
+    }
+
+    /**
+     * コンテナを返却する。
+     * <p>
+     * キャッシュに存在しない場合はコンテナを読み込み、キャッシュに格納する。<br>
+     * 返却したコンテナは{@link #releaseContainer()}を呼び出すまで使用中となり、キャッシュから破棄されない。<br>
+     * 呼び出したスレッドのコンテキストクラスローダは、コンテナを読み込んだクラスローダに切り替わる。<br>
+     * 他のContainerHolderが異なるコンテナを使用中の場合は、そのすべてが解放されるまで待機する。
+     *
+     * @param key 対象となるコンテナのキー
+     * @return コンテナ
+     * @throws IllegalStateException 呼び出したスレッドで他のContainerHolderが異なるコンテナを使用中の場合
+     */
+    public synchronized S2Container getContainer(ContainerKey key) {
+        key = resolveKey(key);
+        if (activeEntry != null && !activeEntry.isDestroyed()
+            && key.equals(activeKey)) {
+            if (activeThread != Thread.currentThread()) {
+                activateEntry(activeEntry);
+            }
+            return activeEntry.getContainer();
+        }
+        releaseContainer();
+        ContainerCache.Entry entry;
+        synchronized (LOAD_LOCK) {
+            awaitOtherContainers(key);
+            entry = containerCache.acquire(key);
+            if (entry == null) {
+                configureFactory();
+                entry = loadEntry(key);
+                containerCache.putAndAcquire(key, entry);
+            }
+            activeEntries.put(this, entry);
+        }
+        activeKey = key;
+        activeEntry = entry;
+        activateEntry(entry);
+        return entry.getContainer();
+    }
+
+    /**
+     * コンテナを事前に読み込み、キャッシュに格納する。
+     * <p>
+     * 既にキャッシュに存在する場合は何もしない。<br>
+     * 実行中のテストに影響を与えないよう、{@link S2ContainerFactory}の設定や{@link SingletonS2ContainerFactory}等の
+     * JVM全体の状態は変更しない。そのため、それらの設定が済んでいない場合は読み込みを行わない。<br>
+     * 読み込んだコンテナは{@link #getContainer(ContainerKey)}で使用する際に{@link SingletonS2ContainerFactory}に設定される。
+     *
+     * @param key 対象となるコンテナのキー
+     * @return 読み込んだ場合は<code>true</code>
+     */
+    public boolean prefetchContainer(ContainerKey key) {
+        key = resolveKey(key);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        synchronized (LOAD_LOCK) {
+            if (containerCache.peek(key) != null) {
+                return false;
+            }
+            if (!isFactoryConfigured()) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("skip prefetch: S2ContainerFactory is not configured");
+                }
+                return false;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("prefetch container:" + key);
+            }
+            try {
+                containerCache.put(key, loadEntry(key));
+            } finally {
+                Thread.currentThread().setContextClassLoader(classLoader);
+            }
+            return true;
         }
-        return container;
+    }
+
+    /**
+     * 使用中のコンテナを解放する。
+     * <p>
+     * コンテナはキャッシュに残るため、次にgetContainerを行った場合はキャッシュから取得される。
+     */
+    public synchronized void releaseContainer() {
+        if (activeEntry != null) {
+            containerCache.release(activeEntry);
+        }
+        synchronized (LOAD_LOCK) {
+            if (activeEntries.remove(this) != null) {
+                LOAD_LOCK.notifyAll();
+            }
+        }
+        activeKey = null;
+        activeEntry = null;
+        activeThread = null;
     }
 
     /**
@@ -95,16 +289,170 @@ public class ContainerHolder {
         this.registerNamingConvention = registerNamingConvention;
     }
 
+    /**
+     * 他のContainerHolderがキーと異なるコンテナを使用している間待機する。
+     * <p>
+     * {@link #LOAD_LOCK}を取得した状態で呼び出すこと。
+     *
+     * @param key 使用するコンテナのキー
+     * @throws IllegalStateException 呼び出したスレッドで他のContainerHolderが異なるコンテナを使用中の場合
+     */
+    private void awaitOtherContainers(ContainerKey key) {
+        boolean waited = false;
+        while (true) {
+            ContainerCache.Entry entry = containerCache.peek(key);
+            ContainerHolder other = null;
+            for (Map.Entry<ContainerHolder, ContainerCache.Entry> active : activeEntries.entrySet()) {
+                if (active.getKey() != this && active.getValue() != entry) {
+                    other = active.getKey();
+                    break;
+                }
+            }
+            if (other == null) {
+                break;
+            }
+            if (other.activeThread == Thread.currentThread()) {
+                throw new IllegalStateException(
+                    "another container is in use on this thread:" + key);
+            }
+            if (!waited && logger.isDebugEnabled()) {
+                logger.debug("wait for other test classes to release their containers:" + key);
+            }
+            waited = true;
+            try {
+                LOAD_LOCK.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for container:" + key, e);
+            }
+        }
+    }
+
+    /**
+     * warm deployとNamingConventionの登録の設定を反映したキーを返却する。
+     *
+     * @param key 対象となるコンテナのキー
+     * @return キャッシュに使用するキー
+     * @see ContainerKey#withOptions(boolean, boolean)
+     */
+    protected ContainerKey resolveKey(ContainerKey key) {
+        return key.withOptions(warmDeploy, registerNamingConvention);
+    }
+
     /**
      * 環境設定を行う。
+     * <p>
+     * ENVの読み込みはJVMで1度だけ行う。
+     *
+     * @see S2Bootstrap#initEnv(String, String)
      */
     private void initEnv() {
-        Env.setFilePath(ENV_PATH);
-        Env.setValueIfAbsent(ENV_VALUE);
+        synchronized (LOAD_LOCK) {
+            S2Bootstrap.initEnv(ENV_PATH, ENV_VALUE);
+        }
+    }
+
+    /**
+     * コンテナを読み込み、includeを適用したエントリを返却する。
+     *
+     * @param key 対象となるコンテナのキー
+     * @return 読み込んだコンテナのエントリ
+     */
+    protected ContainerCache.Entry loadEntry(ContainerKey key) {
+        S2Container container = loadContainer(key.getRootDicon());
+        try {
+            executeIncludes(container, key);
+        } catch (Exception e) {
+            container.destroy();
+            throw new IllegalStateException("failed to include:" + key, e);
+        }
+        return new ContainerCache.Entry(container,
+            Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * キャッシュされていたコンテナを現在のスレッドで使用できるようにする。
+     * <p>
+     * 切り替えるのはコンテキストクラスローダと{@link SingletonS2ContainerFactory}のみである。<br>
+     * 同時に使用できるコンテナは1つのみのため、並列実行時も{@link SingletonS2ContainerFactory}には同じコンテナが設定される。
+     *
+     * @param entry キャッシュされていたコンテナのエントリ
+     */
+    protected void activateEntry(ContainerCache.Entry entry) {
+        Thread.currentThread().setContextClassLoader(entry.getClassLoader());
+        long start = TimingRecorder.start();
+        try {
+            synchronized (LOAD_LOCK) {
+                synchronized (SingletonS2ContainerFactory.class) {
+                    SingletonS2ContainerFactory.setContainer(entry.getContainer());
+                }
+            }
+        } finally {
+            TimingRecorder.stop("container.setContainer", start);
+        }
+        activeThread = Thread.currentThread();
+    }
+
+    /**
+     * コンテナに対してキーに指定された{@link ContainerInclude}を実行する。
+     *
+     * @param container コンテナ
+     * @param key 対象となるコンテナのキー
+     * @throws Exception すべての例外発生時
+     */
+    protected void executeIncludes(S2Container container, ContainerKey key)
+            throws Exception {
+        for (Class<? extends ContainerInclude> clazz : key.getIncludes()) {
+            long start = TimingRecorder.start();
+            try {
+                ContainerInclude include = clazz.newInstance();
+                include.execute(container);
+            } finally {
+                TimingRecorder.stop("include.execute:" + clazz.getSimpleName(), start);
+            }
+        }
+    }
+
+    /**
+     * コンテナの読み込みに必要なJVM全体の設定を行う。
+     * <p>
+     * warm deployの場合の{@link S2ContainerFactory}の設定、{@link SharedIncludeProvider}と
+     * ExternalComponentDeployerProviderの設定を行う。いずれも{@link S2Bootstrap}等により設定済みの場合は何もしない。
+     */
+    protected void configureFactory() {
+        long start = TimingRecorder.start();
+        try {
+            boolean warmDeploy = isWarmDeploy();
+            if (warmDeploy) {
+                S2Bootstrap.configure(WARM_DEPLOY_DICON);
+            }
+            SharedIncludeProvider.install(warmDeploy);
+            S2Bootstrap.installExternalComponentDeployerProvider();
+        } finally {
+            TimingRecorder.stop("container.configure", start);
+        }
+    }
+
+    /**
+     * コンテナの読み込みに必要なJVM全体の設定が済んでいるかどうかを返却する。
+     *
+     * @return 設定が済んでいるかどうか
+     * @see #configureFactory()
+     */
+    protected boolean isFactoryConfigured() {
+        return (!isWarmDeploy() || S2Bootstrap.isConfigured(WARM_DEPLOY_DICON))
+            && SharedIncludeProvider.isInstalled(isWarmDeploy())
+            && S2Bootstrap.isExternalComponentDeployerProviderInstalled();
     }
 
     /**
      * コンテナを読み込みを返却する。
+     * <p>
+     * クラスの検索には{@link IndexedClassLoader}を使用し、warm deployの場合はNamingConventionのルートパッケージを
+     * {@link ClasspathIndex}に登録する。<br>
+     * 呼び出したスレッドのコンテキストクラスローダは、コンテナを読み込んだクラスローダに切り替わる。<br>
+     * {@link S2ContainerFactory}の設定等のJVM全体の設定は変更しないため、事前に{@link #configureFactory()}を呼び出すこと。
+     * 読み込んだコンテナは{@link SingletonS2ContainerFactory}には設定しない。
      *
      * @param rootDicon rootとなるDiconファイル
      * @return 読み込んだコンテナ
@@ -115,22 +463,35 @@ public class ContainerHolder {
         }
         ClassLoader originalClassLoader = getOriginalClassLoader();
         UnitClassLoader unitClassLoader =
-            new UnitClassLoader(originalClassLoader);
+            new UnitClassLoader(IndexedClassLoader.getInstance(originalClassLoader));
         Thread.currentThread().setContextClassLoader(unitClassLoader);
-        if (isWarmDeploy()) {
-            S2ContainerFactory.configure("warmdeploy.dicon");
-        }
-        S2Container container =
-            StringUtil.isEmpty(rootDicon)
-                ? S2ContainerFactory.create()
-                : S2ContainerFactory.create(rootDicon);
-        SingletonS2ContainerFactory.setContainer(container);
-        container.setExternalContextComponentDefRegister(new HttpServletExternalContextComponentDefRegister());
-        ComponentDeployerFactory.setProvider(new ExternalComponentDeployerProvider());
-        if (!container.hasComponentDef(NamingConvention.class)
-            && isRegisterNamingConvention()) {
-            NamingConvention namingConvention = new NamingConventionImpl();
-            container.register(namingConvention);
+        boolean warmDeploy = isWarmDeploy();
+        long start = TimingRecorder.start();
+        S2Container container;
+        try {
+            container =
+                StringUtil.isEmpty(rootDicon)
+                    ? S2ContainerFactory.create()
+                    : S2ContainerFactory.create(rootDicon);
+        } finally {
+            TimingRecorder.stop("container.create", start);
+        }
+        start = TimingRecorder.start();
+        try {
+            container.setExternalContextComponentDefRegister(new HttpServletExternalContextComponentDefRegister());
+            if (warmDeploy && container.hasComponentDef(NamingConvention.class)) {
+                NamingConvention namingConvention =
+                    (NamingConvention) container.getComponent(NamingConvention.class);
+                ClasspathIndex.getInstance().addRootPackageNames(
+                    namingConvention.getRootPackageNames());
+            }
+            if (!container.hasComponentDef(NamingConvention.class)
+                && isRegisterNamingConvention()) {
+                NamingConvention namingConvention = new NamingConventionImpl();
+                container.register(namingConvention);
+            }
+        } finally {
+            TimingRecorder.stop("container.init", start);
         }
         return container;
     }
@@ -139,15 +500,10 @@ public class ContainerHolder {
      * オリジナルのクラスローダを返却する。
      *
      * @return オリジナルのクラスローダ
+     * @see S2Bootstrap#getOriginalClassLoader()
      */
     protected ClassLoader getOriginalClassLoader() {
-        S2Container configurationContainer =
-            S2ContainerFactory.getConfigurationContainer();
-        if (configurationContainer != null
-            && configurationContainer.hasComponentDef(ClassLoader.class)) {
-            return (ClassLoader) configurationContainer.getComponent(ClassLoader.class);
-        }
-        return Thread.currentThread().getContextClassLoader();
+        return S2Bootstrap.getOriginalClassLoader();
     }
 
     /**
@@ -157,10 +513,7 @@ public class ContainerHolder {
      */
     protected boolean isWarmDeploy() {
         return warmDeploy
-            && !ResourceUtil.isExist("s2container.dicon")
-            && ResourceUtil.isExist("convention.dicon")
-            && ResourceUtil.isExist("creator.dicon")
-            && ResourceUtil.isExist("customizer.dicon");
+            && S2Bootstrap.hasWarmDeployResources(getOriginalClassLoader());
     }
 
     /**
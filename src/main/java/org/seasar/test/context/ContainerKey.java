@@ -0,0 +1,177 @@
+package org.seasar.test.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+import org.seasar.test.context.include.ContainerInclude;
+
+/**
+ * コンテナを識別するためのキー。
+ * <p>
+ * rootとなるdiconファイル、{@link org.seasar.test.annotation.ContextConfiguration}
+ * のinclude、ENVの値、warm deployとNamingConventionの登録の設定が同じであれば同一のコンテナとして扱う。
+ *
+ * @author m_nori
+ */
+public final class ContainerKey {
+
+    private final String rootDicon;
+
+    private final List<Class<? extends ContainerInclude>> includes;
+
+    private final String env;
+
+    private final boolean warmDeploy;
+
+    private final boolean registerNamingConvention;
+
+    /**
+     * includeを持たないキーを生成する。
+     *
+     * @param rootDicon rootとなるdiconファイル
+     */
+    public ContainerKey(String rootDicon) {
+        this(rootDicon, null, null);
+    }
+
+    /**
+     * warm deployを行い、NamingConventionを登録するコンテナのキーを生成する。
+     *
+     * @param rootDicon rootとなるdiconファイル
+     * @param includes コンテナに追加するinclude
+     * @param env ENVの値
+     */
+    public ContainerKey(String rootDicon,
+            List<Class<? extends ContainerInclude>> includes, String env) {
+        this(rootDicon, includes, env, true, true);
+    }
+
+    /**
+     * キーを生成する。
+     *
+     * @param rootDicon rootとなるdiconファイル
+     * @param includes コンテナに追加するinclude
+     * @param env ENVの値
+     * @param warmDeploy warm deployを行うか
+     * @param registerNamingConvention NamingConventionを登録するか
+     * @see ContainerHolder#setWarmDeploy(boolean)
+     * @see ContainerHolder#setRegisterNamingConvention(boolean)
+     */
+    public ContainerKey(String rootDicon,
+            List<Class<? extends ContainerInclude>> includes, String env,
+            boolean warmDeploy, boolean registerNamingConvention) {
+        this.rootDicon = rootDicon;
+        this.includes =
+            includes == null
+                ? Collections.<Class<? extends ContainerInclude>> emptyList()
+                : Collections.unmodifiableList(new ArrayList<Class<? extends ContainerInclude>>(includes));
+        this.env = env;
+        this.warmDeploy = warmDeploy;
+        this.registerNamingConvention = registerNamingConvention;
+    }
+
+    /**
+     * rootとなるdiconファイルを返却する。
+     *
+     * @return rootとなるdiconファイル
+     */
+    public String getRootDicon() {
+        return rootDicon;
+    }
+
+    /**
+     * コンテナに追加するincludeを返却する。
+     *
+     * @return コンテナに追加するinclude
+     */
+    public List<Class<? extends ContainerInclude>> getIncludes() {
+        return includes;
+    }
+
+    /**
+     * ENVの値を返却する。
+     *
+     * @return ENVの値
+     */
+    public String getEnv() {
+        return env;
+    }
+
+    /**
+     * warm deployを行うかどうかを返却する。
+     *
+     * @return warm deployを行うか
+     */
+    public boolean isWarmDeploy() {
+        return warmDeploy;
+    }
+
+    /**
+     * NamingConventionを登録するかどうかを返却する。
+     *
+     * @return NamingConventionを登録するか
+     */
+    public boolean isRegisterNamingConvention() {
+        return registerNamingConvention;
+    }
+
+    /**
+     * warm deployとNamingConventionの登録の設定を置き換えたキーを返却する。
+     *
+     * @param warmDeploy warm deployを行うか
+     * @param registerNamingConvention NamingConventionを登録するか
+     * @return 設定を置き換えたキー、設定が同じ場合は自身
+     */
+    public ContainerKey withOptions(boolean warmDeploy,
+            boolean registerNamingConvention) {
+        if (this.warmDeploy == warmDeploy
+            && this.registerNamingConvention == registerNamingConvention) {
+            return this;
+        }
+        return new ContainerKey(rootDicon, includes, env, warmDeploy,
+            registerNamingConvention);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ContainerKey)) {
+            return false;
+        }
+        ContainerKey other = (ContainerKey) obj;
+        return new EqualsBuilder().append(rootDicon, other.rootDicon)
+            .append(includes, other.includes)
+            .append(env, other.env)
+            .append(warmDeploy, other.warmDeploy)
+            .append(registerNamingConvention, other.registerNamingConvention)
+            .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder().append(rootDicon)
+            .append(includes)
+            .append(env)
+            .append(warmDeploy)
+            .append(registerNamingConvention)
+            .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("rootDicon",
+            rootDicon)
+            .append("includes", includes)
+            .append("env", env)
+            .append("warmDeploy", warmDeploy)
+            .append("registerNamingConvention", registerNamingConvention)
+            .toString();
+    }
+}
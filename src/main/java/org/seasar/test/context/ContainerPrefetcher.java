@@ -0,0 +1,157 @@
+package org.seasar.test.context;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.seasar.framework.log.Logger;
+import org.seasar.test.timing.TimingRecorder;
+
+/**
+ * 後続のテストクラスで使用するコンテナをバックグラウンドで読み込む。
+ * <p>
+ * システムプロパティ{@value #DEPTH_PROPERTY}に先読みするテストクラスの数を指定した場合のみ有効となる。<br>
+ * ヒープの空きが{@value #MIN_FREE_MEMORY_PROPERTY}(MB)を下回っている場合は先読みを行わない。<br>
+ * 読み込んだコンテナは{@link ContainerCache}に格納され、テストクラスの実行時に使用される。<br>
+ * 読み込みはJVM全体の状態を変更せずに行うため、その設定が済んでいない場合は先読みを行わない。
+ *
+ * @see ContainerHolder#prefetchContainer(ContainerKey)
+ * @author m_nori
+ */
+public class ContainerPrefetcher {
+    /** 先読みするテストクラスの数を指定するシステムプロパティ。 */
+    public static final String DEPTH_PROPERTY = "s2test.prefetch.depth";
+
+    /** 先読みを行うために必要なヒープの空き(MB)を指定するシステムプロパティ。 */
+    public static final String MIN_FREE_MEMORY_PROPERTY =
+        "s2test.prefetch.minFreeMemory";
+
+    /** 先読みを行うために必要なヒープの空きのデフォルト値(MB)。 */
+    protected static final long DEFAULT_MIN_FREE_MEMORY = 128;
+
+    /** 先読みに要した時間を記録する際のテストメソッド名。 */
+    public static final String PREFETCH_SCOPE = "(prefetch)";
+
+    private static final Logger logger =
+        Logger.getLogger(ContainerPrefetcher.class);
+
+    private static final ContainerPrefetcher instance =
+        new ContainerPrefetcher(Integer.getInteger(DEPTH_PROPERTY, 0),
+            Long.getLong(MIN_FREE_MEMORY_PROPERTY, DEFAULT_MIN_FREE_MEMORY) * 1024 * 1024);
+
+    private final int depth;
+
+    private final long minFreeMemory;
+
+    private final Set<ContainerKey> pendingKeys = new HashSet<ContainerKey>();
+
+    private final ClassLoader contextClassLoader;
+
+    private ExecutorService executor;
+
+    /**
+     * ContainerPrefetcherを生成する。
+     *
+     * @param depth 先読みするテストクラスの数
+     * @param minFreeMemory 先読みを行うために必要なヒープの空き(byte)
+     */
+    public ContainerPrefetcher(int depth, long minFreeMemory) {
+        this.depth = Math.max(0, depth);
+        this.minFreeMemory = minFreeMemory;
+        this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    /**
+     * JVM全体で共有するContainerPrefetcherを返却する。
+     *
+     * @return ContainerPrefetcher
+     */
+    public static ContainerPrefetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * 先読みが有効かどうかを返却する。
+     *
+     * @return 先読みが有効かどうか
+     */
+    public boolean isEnabled() {
+        return depth > 0;
+    }
+
+    /**
+     * 先読みするテストクラスの数を返却する。
+     *
+     * @return 先読みするテストクラスの数
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * コンテナの先読みを要求する。
+     * <p>
+     * 既にキャッシュに存在する場合、先読み中のコンテナが上限に達している場合、ヒープの空きが不足している場合は何もしない。<br>
+     * 先読みに要した時間は{@link TimingRecorder}にテストクラスの{@value #PREFETCH_SCOPE}として記録する。
+     *
+     * @param key 対象となるコンテナのキー
+     * @param testClass コンテナを使用するテストクラス
+     */
+    public void prefetch(final ContainerKey key, final Class<?> testClass) {
+        if (!isEnabled() || ContainerCache.getInstance().peek(key) != null
+            || !hasEnoughMemory()) {
+            return;
+        }
+        synchronized (this) {
+            if (pendingKeys.size() >= depth || !pendingKeys.add(key)) {
+                return;
+            }
+            getExecutor().execute(new Runnable() {
+                public void run() {
+                    try {
+                        Thread.currentThread().setContextClassLoader(contextClassLoader);
+                        TimingRecorder.getInstance().setCurrentClass(testClass);
+                        TimingRecorder.getInstance().setCurrentMethod(PREFETCH_SCOPE);
+                        new ContainerHolder().prefetchContainer(key);
+                    } catch (Throwable t) {
+                        logger.warn("failed to prefetch container:" + key, t);
+                    } finally {
+                        synchronized (ContainerPrefetcher.this) {
+                            pendingKeys.remove(key);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * ヒープの空きが十分にあるかどうかを返却する。
+     *
+     * @return ヒープの空きが十分にあるかどうか
+     */
+    protected boolean hasEnoughMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        boolean enough = runtime.maxMemory() - used >= minFreeMemory;
+        if (!enough && logger.isDebugEnabled()) {
+            logger.debug("skip prefetch: not enough memory");
+        }
+        return enough;
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "s2test-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
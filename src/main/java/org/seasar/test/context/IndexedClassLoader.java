@@ -0,0 +1,202 @@
+package org.seasar.test.context;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.seasar.framework.log.Logger;
+
+/**
+ * リソースの検索結果を保持するクラスローダ。
+ * <p>
+ * 親のクラスローダに委譲したリソースの検索結果を保持し、同じリソースを何度も検索しないようにする。<br>
+ * また、{@link ClasspathIndex}によりルートパッケージ配下に存在しないと判定できるクラスは親に委譲せずに
+ * {@link ClassNotFoundException}とする。<br>
+ * クラスパスを特定できないクラスローダが親に含まれる場合は、リソースの検索結果の保持のみを行う。<br>
+ * システムプロパティ{@value #ENABLED_PROPERTY}に<code>false</code>を指定した場合は使用しない。
+ *
+ * @author m_nori
+ */
+public class IndexedClassLoader extends ClassLoader {
+    /** 使用するかどうかを指定するシステムプロパティ。 */
+    public static final String ENABLED_PROPERTY = "s2test.classpathIndex";
+
+    private static final Logger logger =
+        Logger.getLogger(IndexedClassLoader.class);
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final Map<ClassLoader, WeakReference<IndexedClassLoader>> instances =
+        new WeakHashMap<ClassLoader, WeakReference<IndexedClassLoader>>();
+
+    private final ClasspathIndex classpathIndex;
+
+    private final List<File> roots;
+
+    private final ConcurrentMap<String, Object> resources =
+        new ConcurrentHashMap<String, Object>();
+
+    /**
+     * IndexedClassLoaderを生成する。
+     *
+     * @param parent 親のクラスローダ
+     * @param classpathIndex 使用するインデックス
+     */
+    public IndexedClassLoader(ClassLoader parent, ClasspathIndex classpathIndex) {
+        super(parent);
+        this.classpathIndex = classpathIndex;
+        this.roots = findRoots(parent);
+        if (logger.isDebugEnabled() && roots == null) {
+            logger.debug("classpath of " + parent + " is unknown");
+        }
+    }
+
+    /**
+     * 親のクラスローダに対応するIndexedClassLoaderを返却する。
+     * <p>
+     * 同じ親のクラスローダに対しては同じインスタンスを返却する。<br>
+     * 使用しない設定の場合は親のクラスローダをそのまま返却する。
+     *
+     * @param parent 親のクラスローダ
+     * @return クラスローダ
+     */
+    public static synchronized ClassLoader getInstance(ClassLoader parent) {
+        if (parent instanceof IndexedClassLoader
+            || "false".equals(System.getProperty(ENABLED_PROPERTY))) {
+            return parent;
+        }
+        WeakReference<IndexedClassLoader> ref = instances.get(parent);
+        IndexedClassLoader classLoader = ref != null ? ref.get() : null;
+        if (classLoader == null) {
+            classLoader =
+                new IndexedClassLoader(parent, ClasspathIndex.getInstance());
+            instances.put(parent, new WeakReference<IndexedClassLoader>(classLoader));
+        }
+        return classLoader;
+    }
+
+    /**
+     * 保持しているIndexedClassLoaderを破棄する。
+     * <p>
+     * リソースが追加または削除された場合に呼び出す。以降の{@link #getInstance(ClassLoader)}では
+     * 検索結果を保持していない新しいインスタンスを返却する。
+     */
+    public static synchronized void clear() {
+        instances.clear();
+    }
+
+    @Override
+    public URL getResource(String name) {
+        Object resource = resources.get(name);
+        if (resource == null) {
+            resource = isMissing(name) ? null : super.getResource(name);
+            resources.putIfAbsent(name, resource != null ? resource : NOT_FOUND);
+        }
+        return resource == NOT_FOUND ? null : (URL) resource;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve)
+            throws ClassNotFoundException {
+        if (name.indexOf("$$") < 0
+            && isMissing(name.replace('.', '/') + ".class")) {
+            throw new ClassNotFoundException(name);
+        }
+        return super.loadClass(name, resolve);
+    }
+
+    private boolean isMissing(String resourceName) {
+        return roots != null
+            && Boolean.FALSE.equals(classpathIndex.exists(roots, resourceName));
+    }
+
+    /**
+     * クラスローダの階層からクラスパスのディレクトリとjarファイルを取得する。
+     *
+     * @param classLoader クラスローダ
+     * @return クラスパスのディレクトリとjarファイル、特定できない場合は<code>null</code>
+     */
+    protected static List<File> findRoots(ClassLoader classLoader) {
+        ClassLoader system = ClassLoader.getSystemClassLoader();
+        List<File> roots = new ArrayList<File>();
+        for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    if (!"file".equals(url.getProtocol())) {
+                        return null;
+                    }
+                    try {
+                        addRoot(roots, new File(url.toURI()));
+                    } catch (URISyntaxException e) {
+                        return null;
+                    }
+                }
+            } else if (cl == system) {
+                for (String path : System.getProperty("java.class.path", "")
+                    .split(File.pathSeparator)) {
+                    if (path.length() > 0) {
+                        addRoot(roots, new File(path).getAbsoluteFile());
+                    }
+                }
+            } else if (cl != system.getParent()) {
+                return null;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * クラスパスのディレクトリとjarファイルを追加する。
+     * <p>
+     * jarファイルのマニフェストにClass-Pathが指定されている場合は、その内容も追加する。
+     *
+     * @param roots クラスパスのディレクトリとjarファイル
+     * @param root 追加するディレクトリまたはjarファイル
+     */
+    private static void addRoot(List<File> roots, File root) {
+        if (roots.contains(root)) {
+            return;
+        }
+        roots.add(root);
+        if (!root.isFile()) {
+            return;
+        }
+        try {
+            JarFile jarFile = new JarFile(root);
+            try {
+                Manifest manifest = jarFile.getManifest();
+                String classPath =
+                    manifest != null
+                        ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH)
+                        : null;
+                if (classPath == null) {
+                    return;
+                }
+                for (String path : classPath.trim().split("\\s+")) {
+                    URL url = new URL(root.toURI().toURL(), path);
+                    if ("file".equals(url.getProtocol())) {
+                        addRoot(roots, new File(url.toURI()));
+                    }
+                }
+            } finally {
+                jarFile.close();
+            }
+        } catch (IOException e) {
+            logger.warn("failed to read manifest:" + root, e);
+        } catch (URISyntaxException e) {
+            logger.warn("failed to read manifest:" + root, e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package org.seasar.test.context;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
+import org.seasar.framework.log.Logger;
+
+/**
+ * 破棄したコンテナとクラスローダのリークを検出する。
+ * <p>
+ * システムプロパティ{@value #ENABLED_PROPERTY}に<code>true</code>を指定した場合のみ有効となる。<br>
+ * 破棄したコンテナと、そのコンテナを読み込んだクラスローダを弱参照で保持し、
+ * テストクラスの終了時にGCを実行しても回収されないものをリークとして報告する。<br>
+ * リークはコンテナを破棄したテストクラスの終了時に1度だけ報告し、以降は追跡しない。
+ * テストクラスの外で破棄されたものは、次に終了したテストクラスで報告する。<br>
+ * 参照元は{@link SingletonS2ContainerFactory}、スレッドのコンテキストクラスローダ、
+ * リークしたクラスローダで読み込まれたクラスのスレッドから推定する。<br>
+ * また、{@value #MAX_RETAINED_PROPERTY}にMB単位で上限を指定した場合、
+ * テストクラスの実行前後でGC後のヒープ使用量が上限を超えて増加したテストクラスを失敗とする。
+ *
+ * @author m_nori
+ */
+public class LeakDetector {
+    /** リークの検出を有効にするシステムプロパティ。 */
+    public static final String ENABLED_PROPERTY = "s2test.leakDetection";
+
+    /** テストクラスごとのヒープ増加量の上限(MB)を指定するシステムプロパティ。 */
+    public static final String MAX_RETAINED_PROPERTY = "s2test.leakDetection.maxRetainedMB";
+
+    /** リークを検出した場合にテストクラスを失敗とするかを指定するシステムプロパティ。 */
+    public static final String FAIL_ON_LEAK_PROPERTY = "s2test.leakDetection.failOnLeak";
+
+    private static final Logger logger = Logger.getLogger(LeakDetector.class);
+
+    private static final int GC_COUNT = 3;
+
+    private static final LeakDetector instance =
+        new LeakDetector(Boolean.getBoolean(ENABLED_PROPERTY),
+            Long.getLong(MAX_RETAINED_PROPERTY, 0L).longValue() * 1024L * 1024L,
+            Boolean.getBoolean(FAIL_ON_LEAK_PROPERTY));
+
+    private volatile boolean enabled;
+
+    private final long maxRetainedBytes;
+
+    private volatile boolean failOnLeak;
+
+    private final List<Tracked> trackedList = new ArrayList<Tracked>();
+
+    private final ThreadLocal<long[]> heapBefore = new ThreadLocal<long[]>();
+
+    private final ThreadLocal<Class<?>> currentTestClass = new ThreadLocal<Class<?>>();
+
+    /**
+     * LeakDetectorを生成する。
+     *
+     * @param enabled 有効かどうか
+     * @param maxRetainedBytes テストクラスごとのヒープ増加量の上限(byte)、<code>0</code>の場合は制限しない
+     * @param failOnLeak リークを検出した場合にテストクラスを失敗とするか
+     */
+    public LeakDetector(boolean enabled, long maxRetainedBytes,
+            boolean failOnLeak) {
+        this.enabled = enabled;
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.failOnLeak = failOnLeak;
+    }
+
+    /**
+     * JVM全体で共有するLeakDetectorを返却する。
+     *
+     * @return LeakDetector
+     */
+    public static LeakDetector getInstance() {
+        return instance;
+    }
+
+    /**
+     * 有効かどうかを返却する。
+     *
+     * @return 有効かどうか
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * リークを検出した場合にテストクラスを失敗とするかを返却する。
+     *
+     * @return リークを検出した場合にテストクラスを失敗とするか
+     */
+    public boolean isFailOnLeak() {
+        return failOnLeak;
+    }
+
+    /**
+     * 有効かどうかを設定する。
+     *
+     * @param enabled 有効かどうか
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * リークを検出した場合にテストクラスを失敗とするかを設定する。
+     *
+     * @param failOnLeak リークを検出した場合にテストクラスを失敗とするか
+     */
+    public void setFailOnLeak(boolean failOnLeak) {
+        this.failOnLeak = failOnLeak;
+    }
+
+    /**
+     * 破棄したコンテナとクラスローダを追跡する。
+     *
+     * @param container 破棄したコンテナ
+     * @param classLoader コンテナを読み込んだクラスローダ
+     */
+    public void track(S2Container container, ClassLoader classLoader) {
+        if (!enabled) {
+            return;
+        }
+        track(container, classLoader, container.getPath());
+    }
+
+    /**
+     * 破棄したオブジェクトとクラスローダを追跡する。
+     *
+     * @param target 破棄したオブジェクト
+     * @param classLoader オブジェクトを読み込んだクラスローダ
+     * @param description リークを報告する際の説明
+     */
+    protected synchronized void track(Object target, ClassLoader classLoader,
+            String description) {
+        trackedList.add(new Tracked(target, classLoader, description,
+            currentTestClass.get()));
+    }
+
+    /**
+     * テストクラスの開始時に実行中のテストクラスとヒープ使用量を記録する。
+     *
+     * @param testClass テストクラス
+     */
+    public void beforeTestClass(Class<?> testClass) {
+        if (!enabled) {
+            return;
+        }
+        currentTestClass.set(testClass);
+        if (maxRetainedBytes > 0) {
+            heapBefore.set(new long[] { collectGarbage() });
+        }
+    }
+
+    /**
+     * テストクラスの終了時にリークとヒープ使用量を確認する。
+     *
+     * @param testClass テストクラス
+     * @throws IllegalStateException リークを検出して失敗とする設定の場合、またはヒープ使用量の増加が上限を超えた場合
+     */
+    public void afterTestClass(Class<?> testClass) {
+        if (!enabled) {
+            return;
+        }
+        currentTestClass.remove();
+        long used = collectGarbage();
+        List<String> leaks = findLeaks(testClass);
+        for (String leak : leaks) {
+            logger.warn("container leak detected after " + testClass.getName()
+                + ": " + leak);
+        }
+        if (failOnLeak && !leaks.isEmpty()) {
+            throw new IllegalStateException(leaks.size()
+                + " destroyed container(s) still reachable: " + leaks);
+        }
+        long[] before = heapBefore.get();
+        heapBefore.remove();
+        if (before != null && used - before[0] > maxRetainedBytes) {
+            throw new IllegalStateException(testClass.getName()
+                + " retained " + toMegaBytes(used - before[0])
+                + "MB of heap, limit is " + toMegaBytes(maxRetainedBytes) + "MB");
+        }
+    }
+
+    /**
+     * 指定したテストクラス、またはテストクラスの外で破棄されたもののうち、回収されていないものを返却する。
+     * <p>
+     * 返却したものと回収されたものは追跡を終了する。他のテストクラスが破棄したものはそのテストクラスの終了時まで追跡する。<br>
+     * GCの実行は呼び出し側で行う。
+     *
+     * @param testClass 終了したテストクラス
+     * @return 回収されていないものの説明と推定される参照元
+     */
+    public synchronized List<String> findLeaks(Class<?> testClass) {
+        List<String> leaks = new ArrayList<String>();
+        for (Iterator<Tracked> it = trackedList.iterator(); it.hasNext();) {
+            Tracked tracked = it.next();
+            Object target = tracked.target.get();
+            ClassLoader classLoader = tracked.classLoader.get();
+            if (target == null && classLoader == null) {
+                it.remove();
+                continue;
+            }
+            if (tracked.testClass != null && tracked.testClass != testClass) {
+                continue;
+            }
+            it.remove();
+            StringBuilder sb = new StringBuilder(String.valueOf(tracked.description));
+            sb.append(target != null ? " (container" : " (class loader");
+            sb.append(" reachable, suspected root: ");
+            sb.append(findRoot(target, classLoader)).append(')');
+            leaks.add(sb.toString());
+        }
+        return leaks;
+    }
+
+    /**
+     * 回収されていないコンテナまたはクラスローダの参照元を推定する。
+     *
+     * @param target コンテナ
+     * @param classLoader クラスローダ
+     * @return 参照元の説明
+     */
+    protected String findRoot(Object target, ClassLoader classLoader) {
+        if (target != null && SingletonS2ContainerFactory.hasContainer()
+            && SingletonS2ContainerFactory.getContainer() == target) {
+            return SingletonS2ContainerFactory.class.getName();
+        }
+        if (classLoader != null) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getContextClassLoader() == classLoader) {
+                    return "context class loader of thread " + thread.getName()
+                        + " (" + thread.getClass().getName() + ")";
+                }
+                if (thread.getClass().getClassLoader() == classLoader) {
+                    return "thread " + thread.getName() + " ("
+                        + thread.getClass().getName() + ")";
+                }
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * GCを実行し、ヒープ使用量を返却する。
+     *
+     * @return GC後のヒープ使用量(byte)
+     */
+    protected long collectGarbage() {
+        for (int i = 0; i < GC_COUNT; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long toMegaBytes(long bytes) {
+        return bytes / (1024L * 1024L);
+    }
+
+    /**
+     * 追跡しているオブジェクトとクラスローダ。
+     *
+     * @author m_nori
+     */
+    private static class Tracked {
+        final WeakReference<Object> target;
+
+        final WeakReference<ClassLoader> classLoader;
+
+        final String description;
+
+        final Class<?> testClass;
+
+        Tracked(Object target, ClassLoader classLoader, String description,
+                Class<?> testClass) {
+            this.target = new WeakReference<Object>(target);
+            this.classLoader = new WeakReference<ClassLoader>(classLoader);
+            this.description = description;
+            this.testClass = testClass;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.seasar.test.context;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.InstanceDef;
+import org.seasar.framework.container.MetaDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.log.Logger;
+import org.seasar.test.annotation.Poolable;
+
+/**
+ * prototypeのコンポーネントをテストメソッド間で再利用するためのプール。
+ * <p>
+ * {@link Poolable}が付与されたクラス、またはdiconファイルで{@value #POOLABLE_META}のmetaが指定された
+ * prototypeのコンポーネントを対象とする。<br>
+ * テストインスタンスに貸し出したインスタンスは{@link #release(Object)}でリセットメソッドを呼び出してプールに戻し、
+ * 次のテストインスタンスに再び貸し出す。リセットメソッドで例外が発生したインスタンスは破棄する。<br>
+ * プールはコンテナごとに保持し、コンテナの初期化時と{@link ContainerCache}からの破棄時には{@link #clear(S2Container)}で破棄する。<br>
+ * プールはコンポーネント定義を通じてコンテナを参照するため、破棄しない限りコンテナは回収されない。
+ *
+ * @author m_nori
+ */
+public class PrototypePool {
+    /** 再利用の対象とするためのmetaの名前。値はリセットメソッド名。 */
+    public static final String POOLABLE_META = "s2test.poolable";
+
+    private static final Logger logger = Logger.getLogger(PrototypePool.class);
+
+    private static final Object NOT_POOLABLE = new Object();
+
+    private static final Map<S2Container, PrototypePool> pools =
+        new WeakHashMap<S2Container, PrototypePool>();
+
+    private static final Map<Object, List<Lease>> leases =
+        new IdentityHashMap<Object, List<Lease>>();
+
+    private final WeakReference<S2Container> container;
+
+    private final Map<Object, Object> poolableDefs = new HashMap<Object, Object>();
+
+    private final Map<ComponentDef, LinkedList<Object>> idle =
+        new IdentityHashMap<ComponentDef, LinkedList<Object>>();
+
+    /**
+     * PrototypePoolを生成する。
+     *
+     * @param container 対象のコンテナ
+     */
+    protected PrototypePool(S2Container container) {
+        this.container = new WeakReference<S2Container>(container);
+    }
+
+    /**
+     * コンテナに対応するプールを返却する。
+     *
+     * @param container コンテナ
+     * @return プール
+     */
+    public static synchronized PrototypePool getInstance(S2Container container) {
+        PrototypePool pool = pools.get(container);
+        if (pool == null) {
+            pool = new PrototypePool(container);
+            pools.put(container, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * コンテナのプールを破棄する。
+     * <p>
+     * 貸し出し中のインスタンスはプールに戻さない。
+     *
+     * @param container コンテナ
+     */
+    public static synchronized void clear(S2Container container) {
+        PrototypePool pool = pools.remove(container);
+        if (pool != null && logger.isDebugEnabled()) {
+            logger.debug("clear prototype pool:" + container.getPath());
+        }
+    }
+
+    /**
+     * テストインスタンスに貸し出したインスタンスをプールに戻す。
+     *
+     * @param owner テストインスタンス
+     */
+    public static void release(Object owner) {
+        List<Lease> ownerLeases;
+        synchronized (PrototypePool.class) {
+            ownerLeases = leases.remove(owner);
+        }
+        if (ownerLeases == null) {
+            return;
+        }
+        for (Lease lease : ownerLeases) {
+            lease.pool.giveBack(lease.componentDef, lease.component);
+        }
+    }
+
+    /**
+     * キーに対応するコンポーネントが再利用の対象かどうかを返却する。
+     *
+     * @param key コンポーネント名または型
+     * @return 再利用の対象かどうか
+     */
+    public boolean isPoolable(Object key) {
+        return getPoolableDef(key) != null;
+    }
+
+    /**
+     * コンポーネントを貸し出す。
+     * <p>
+     * 再利用の対象でない場合はコンテナから取得したコンポーネントを返却する。
+     *
+     * @param key コンポーネント名または型
+     * @param owner 貸し出し先のテストインスタンス
+     * @return コンポーネント
+     */
+    public Object lease(Object key, Object owner) {
+        ComponentDef componentDef = getPoolableDef(key);
+        if (componentDef == null) {
+            return getContainer().getComponent(key);
+        }
+        Object component = null;
+        synchronized (this) {
+            LinkedList<Object> components = idle.get(componentDef);
+            if (components != null && !components.isEmpty()) {
+                component = components.removeFirst();
+            }
+        }
+        if (component == null) {
+            component = componentDef.getComponent();
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("reuse pooled component:" + key);
+        }
+        synchronized (PrototypePool.class) {
+            List<Lease> ownerLeases = leases.get(owner);
+            if (ownerLeases == null) {
+                ownerLeases = new ArrayList<Lease>();
+                leases.put(owner, ownerLeases);
+            }
+            ownerLeases.add(new Lease(this, componentDef, component));
+        }
+        return component;
+    }
+
+    /**
+     * インスタンスをリセットしてプールに戻す。
+     *
+     * @param componentDef コンポーネント定義
+     * @param component インスタンス
+     */
+    protected void giveBack(ComponentDef componentDef, Object component) {
+        synchronized (PrototypePool.class) {
+            S2Container current = container.get();
+            if (current == null || pools.get(current) != this) {
+                return;
+            }
+        }
+        String resetMethod = getResetMethod(componentDef);
+        if (resetMethod != null && resetMethod.length() > 0) {
+            try {
+                Method method = component.getClass().getMethod(resetMethod);
+                method.invoke(component);
+            } catch (Exception e) {
+                logger.warn("failed to reset pooled component:"
+                    + componentDef.getComponentName(), e);
+                return;
+            }
+        }
+        synchronized (this) {
+            LinkedList<Object> components = idle.get(componentDef);
+            if (components == null) {
+                components = new LinkedList<Object>();
+                idle.put(componentDef, components);
+            }
+            components.addLast(component);
+        }
+    }
+
+    private synchronized ComponentDef getPoolableDef(Object key) {
+        Object poolableDef = poolableDefs.get(key);
+        if (poolableDef == null) {
+            ComponentDef componentDef =
+                ComponentIndex.getInstance(getContainer()).getComponentDef(key);
+            poolableDef =
+                componentDef != null && isPrototype(componentDef)
+                    && getResetMethod(componentDef) != null ? componentDef
+                    : NOT_POOLABLE;
+            poolableDefs.put(key, poolableDef);
+        }
+        return poolableDef == NOT_POOLABLE ? null : (ComponentDef) poolableDef;
+    }
+
+    private S2Container getContainer() {
+        S2Container current = container.get();
+        if (current == null) {
+            throw new IllegalStateException("container has been collected");
+        }
+        return current;
+    }
+
+    private static boolean isPrototype(ComponentDef componentDef) {
+        InstanceDef instanceDef = componentDef.getInstanceDef();
+        return instanceDef != null
+            && InstanceDef.PROTOTYPE_NAME.equals(instanceDef.getName());
+    }
+
+    /**
+     * リセットメソッド名を返却する。
+     *
+     * @param componentDef コンポーネント定義
+     * @return リセットメソッド名、再利用の対象でない場合は<code>null</code>
+     */
+    private static String getResetMethod(ComponentDef componentDef) {
+        MetaDef metaDef = componentDef.getMetaDef(POOLABLE_META);
+        if (metaDef != null) {
+            Object value = metaDef.getValue();
+            return value != null ? value.toString() : "";
+        }
+        Class<?> componentClass = componentDef.getComponentClass();
+        Poolable poolable =
+            componentClass != null ? componentClass.getAnnotation(Poolable.class) : null;
+        return poolable != null ? poolable.resetMethod() : null;
+    }
+
+    /**
+     * テストインスタンスに貸し出したインスタンス。
+     *
+     * @author m_nori
+     */
+    private static class Lease {
+        final PrototypePool pool;
+
+        final ComponentDef componentDef;
+
+        final Object component;
+
+        Lease(PrototypePool pool, ComponentDef componentDef, Object component) {
+            this.pool = pool;
+            this.componentDef = componentDef;
+            this.component = component;
+        }
+    }
+}
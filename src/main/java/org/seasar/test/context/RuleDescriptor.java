@@ -0,0 +1,88 @@
+package org.seasar.test.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.runners.model.FrameworkField;
+import org.junit.runners.model.TestClass;
+import org.seasar.test.annotation.InstanceRule;
+import org.seasar.test.rule.S2InstanceRule;
+
+/**
+ * テストクラスに設定されたルールのフィールドを保持する。
+ * <p>
+ * {@link InstanceRule}、{@link Rule}が付与されたフィールドをテストクラスごとに1度だけ取得し、
+ * テストインスタンスごとのルールの取得ではフィールドの値のみを参照する。<br>
+ * S2Test固有のルール({@link S2InstanceRule}、{@link org.seasar.test.rule.S2TestRule})の取得にのみ使用し、
+ * JUnitが適用するルールの収集はJUnitに任せる。そのため、S2TestRuleはフィールドに設定したもののみTestContextが設定される。
+ *
+ * @author m_nori
+ */
+public final class RuleDescriptor {
+
+    private final List<FrameworkField> instanceRuleFields;
+
+    private final List<FrameworkField> ruleFields;
+
+    /**
+     * テストクラスのルールのフィールドを取得してRuleDescriptorを生成する。
+     *
+     * @param testClass テストクラス
+     */
+    public RuleDescriptor(TestClass testClass) {
+        this.instanceRuleFields =
+            unmodifiable(testClass.getAnnotatedFields(InstanceRule.class));
+        this.ruleFields = unmodifiable(testClass.getAnnotatedFields(Rule.class));
+    }
+
+    /**
+     * テストインスタンスに設定されている{@link S2InstanceRule}を返却する。
+     *
+     * @param target テストインスタンス
+     * @return S2InstanceRule
+     */
+    public List<S2InstanceRule> getInstanceRules(Object target) {
+        return getValues(instanceRuleFields, target, S2InstanceRule.class);
+    }
+
+    /**
+     * テストインスタンスに設定されている{@link Rule}のうち、指定した型のものを返却する。
+     *
+     * @param <T> ルールの型
+     * @param target テストインスタンス
+     * @param ruleType ルールの型
+     * @return ルール
+     */
+    public <T> List<T> getRules(Object target, Class<T> ruleType) {
+        return getValues(ruleFields, target, ruleType);
+    }
+
+    private static <T> List<T> getValues(List<FrameworkField> fields,
+            Object target, Class<T> valueClass) {
+        if (fields.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<T>(fields.size());
+        for (FrameworkField field : fields) {
+            try {
+                Object value = field.get(target);
+                if (valueClass.isInstance(value)) {
+                    result.add(valueClass.cast(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("failed to get rule:"
+                    + field.getName(), e);
+            }
+        }
+        return result;
+    }
+
+    private static List<FrameworkField> unmodifiable(List<FrameworkField> fields) {
+        if (fields.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<FrameworkField>(fields));
+    }
+}
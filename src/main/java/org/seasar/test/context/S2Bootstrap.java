@@ -0,0 +1,202 @@
+package org.seasar.test.context;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.deployer.ComponentDeployerFactory;
+import org.seasar.framework.container.deployer.ExternalComponentDeployerProvider;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.env.Env;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.unit.UnitClassLoader;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * Seasar2のJVM全体の設定を1度だけ行う。
+ * <p>
+ * ENVの読み込み、{@link S2ContainerFactory#configure(String)}、{@link ExternalComponentDeployerProvider}の設定、
+ * warm deployに必要なdiconファイルの確認はコンテナの読み込みごとに結果が変わらないため、1度だけ行い結果を保持する。<br>
+ * {@link S2ContainerFactory}が破棄された場合、または設定ファイルのパス、クラスパス上の位置、更新日時が変わった場合はconfigureをやり直す。<br>
+ * 常駐プロセスでクラスやリソースが変更された場合は{@link #reset()}で保持している結果を破棄する。
+ *
+ * @author m_nori
+ */
+public final class S2Bootstrap {
+
+    private static final Logger logger = Logger.getLogger(S2Bootstrap.class);
+
+    private static final Map<ClassLoader, Boolean> warmDeployResources =
+        new WeakHashMap<ClassLoader, Boolean>();
+
+    private static boolean envInitialized;
+
+    private static String configFile;
+
+    private static String configStamp;
+
+    private static S2Container configurationContainer;
+
+    private static ClassLoader configuredClassLoader;
+
+    private S2Bootstrap() {
+    }
+
+    /**
+     * ENVを設定する。
+     * <p>
+     * 2回目以降の呼び出しでは何もしない。
+     *
+     * @param path ENVが設定されているファイルのパス
+     * @param value ENVが設定されていない場合のデフォルト値
+     */
+    public static synchronized void initEnv(String path, String value) {
+        if (envInitialized) {
+            return;
+        }
+        Env.setFilePath(path);
+        Env.setValueIfAbsent(value);
+        envInitialized = true;
+    }
+
+    /**
+     * {@link S2ContainerFactory}の設定を行う。
+     * <p>
+     * 同じ設定ファイルで設定済みの場合は何もしない。
+     *
+     * @param path 設定ファイルのパス
+     * @see #isConfigured(String)
+     */
+    public static synchronized void configure(String path) {
+        if (isConfigured(path)) {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("configure S2ContainerFactory:" + path);
+        }
+        S2ContainerFactory.configure(path);
+        configFile = path;
+        configStamp = getResourceStamp(path);
+        configurationContainer = S2ContainerFactory.getConfigurationContainer();
+        configuredClassLoader =
+            configurationContainer != null
+                && configurationContainer.hasComponentDef(ClassLoader.class)
+                ? (ClassLoader) configurationContainer.getComponent(ClassLoader.class)
+                : null;
+    }
+
+    /**
+     * 指定した設定ファイルで{@link S2ContainerFactory}の設定が済んでいるかどうかを返却する。
+     * <p>
+     * 設定後にクラスパス上の設定ファイルの位置または更新日時が変わった場合は、設定が済んでいないものとする。
+     *
+     * @param path 設定ファイルのパス
+     * @return 設定が済んでいるかどうか
+     */
+    public static synchronized boolean isConfigured(String path) {
+        S2Container current = S2ContainerFactory.getConfigurationContainer();
+        return path.equals(configFile) && current != null
+            && current == configurationContainer
+            && getResourceStamp(path).equals(configStamp);
+    }
+
+    /**
+     * クラスパス上のリソースの変更を検出するための値を返却する。
+     * <p>
+     * クラスパス上のURLと、ファイルの場合は更新日時から算出する。
+     *
+     * @param path リソースのパス
+     * @return 変更を検出するための値、リソースが存在しない場合は空文字
+     */
+    static String getResourceStamp(String path) {
+        URL url = ResourceUtil.getResourceNoException(path);
+        if (url == null) {
+            return "";
+        }
+        if (!"file".equals(url.getProtocol())) {
+            return url.toExternalForm();
+        }
+        try {
+            return url.toExternalForm() + "|" + new File(url.toURI()).lastModified();
+        } catch (URISyntaxException e) {
+            return url.toExternalForm();
+        }
+    }
+
+    /**
+     * {@link ExternalComponentDeployerProvider}が設定されているかどうかを返却する。
+     *
+     * @return 設定されているかどうか
+     */
+    public static synchronized boolean isExternalComponentDeployerProviderInstalled() {
+        return ComponentDeployerFactory.getProvider() instanceof ExternalComponentDeployerProvider;
+    }
+
+    /**
+     * {@link ExternalComponentDeployerProvider}を設定する。
+     * <p>
+     * 既に設定されている場合は何もしない。
+     */
+    public static synchronized void installExternalComponentDeployerProvider() {
+        if (!isExternalComponentDeployerProviderInstalled()) {
+            ComponentDeployerFactory.setProvider(new ExternalComponentDeployerProvider());
+        }
+    }
+
+    /**
+     * warm deployに必要なdiconファイルが揃っているかどうかを返却する。
+     * <p>
+     * 結果はクラスローダごとに保持する。
+     *
+     * @param classLoader 確認に使用するクラスローダ
+     * @return warm deployに必要なdiconファイルが揃っているかどうか
+     */
+    public static synchronized boolean hasWarmDeployResources(ClassLoader classLoader) {
+        Boolean result = warmDeployResources.get(classLoader);
+        if (result == null) {
+            result =
+                Boolean.valueOf(!ResourceUtil.isExist("s2container.dicon")
+                    && ResourceUtil.isExist("convention.dicon")
+                    && ResourceUtil.isExist("creator.dicon")
+                    && ResourceUtil.isExist("customizer.dicon"));
+            warmDeployResources.put(classLoader, result);
+        }
+        return result.booleanValue();
+    }
+
+    /**
+     * コンテナを読み込む際の親となるクラスローダを返却する。
+     * <p>
+     * 設定ファイルにクラスローダが定義されている場合はそれを返却する。<br>
+     * それ以外の場合はコンテキストクラスローダから、以前の読み込みで設定された
+     * {@link UnitClassLoader}と{@link IndexedClassLoader}を取り除いたものを返却する。
+     *
+     * @return 親となるクラスローダ
+     */
+    public static synchronized ClassLoader getOriginalClassLoader() {
+        if (configuredClassLoader != null) {
+            return configuredClassLoader;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        while (classLoader instanceof UnitClassLoader
+            || classLoader instanceof IndexedClassLoader) {
+            classLoader = classLoader.getParent();
+        }
+        return classLoader;
+    }
+
+    /**
+     * 保持している結果を破棄し、次のコンテナの読み込みで設定をやり直す。
+     */
+    public static synchronized void reset() {
+        envInitialized = false;
+        configFile = null;
+        configStamp = null;
+        configurationContainer = null;
+        configuredClassLoader = null;
+        warmDeployResources.clear();
+    }
+}
@@ -0,0 +1,308 @@
+package org.seasar.test.context;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.seasar.framework.container.InstanceDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.env.Env;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.unit.UnitClassLoader;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * includeされた子コンテナを複数のコンテナで共有するためのProvider。
+ * <p>
+ * 子コンテナはパス、クラスパス上の位置と更新日時、ENVの値、クラスローダをキーにJVMで1度だけ生成し、
+ * 同じdiconファイルをincludeするすべてのコンテナにその子コンテナを組み込む。<br>
+ * 子コンテナはrootのコンテナごとの{@link UnitClassLoader}ではなく、その親のクラスローダをコンテキストクラスローダとして生成する。<br>
+ * 組み込むのは子コンテナのプロキシであり、親コンテナによるrootの設定や破棄は子コンテナに伝えない。
+ * プロキシはrootのコンテナに子孫として登録する。<br>
+ * 子コンテナ(さらにincludeしているコンテナを含む)にsingletonとprototype以外のコンポーネントが含まれる場合は、
+ * rootのコンテナのExternalContextを参照するため共有しない。<br>
+ * 共有された子コンテナのコンポーネントは{@link ComponentResetter}による初期化の対象とならない。<br>
+ * warm deployの場合、またはシステムプロパティ{@value #ENABLED_PROPERTY}に<code>false</code>を指定した場合は使用しない。
+ *
+ * @author m_nori
+ */
+public class SharedIncludeProvider implements S2ContainerFactory.Provider {
+    /** 使用するかどうかを指定するシステムプロパティ。 */
+    public static final String ENABLED_PROPERTY = "s2test.sharedIncludes";
+
+    private static final Logger logger =
+        Logger.getLogger(SharedIncludeProvider.class);
+
+    private static final Map<List<Object>, S2Container> sharedContainers =
+        new HashMap<List<Object>, S2Container>();
+
+    private final S2ContainerFactory.Provider delegate;
+
+    /**
+     * SharedIncludeProviderを生成する。
+     *
+     * @param delegate コンテナの生成を委譲するProvider
+     */
+    public SharedIncludeProvider(S2ContainerFactory.Provider delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@link S2ContainerFactory}にSharedIncludeProviderを設定する。
+     * <p>
+     * {@link S2ContainerFactory#configure(String)}によりProviderが置き換えられるため、コンテナの生成前に毎回呼び出す。<br>
+     * 使用しない場合は、設定済みのSharedIncludeProviderを元のProviderに戻す。
+     *
+     * @param warmDeploy warm deployかどうか
+     */
+    public static void install(boolean warmDeploy) {
+        if (isEnabled(warmDeploy)) {
+            Installer.install();
+        } else {
+            Installer.uninstall();
+        }
+    }
+
+    /**
+     * {@link S2ContainerFactory}のProviderが{@link #install(boolean)}による設定の通りかどうかを返却する。
+     *
+     * @param warmDeploy warm deployかどうか
+     * @return 設定の通りかどうか
+     */
+    public static boolean isInstalled(boolean warmDeploy) {
+        return isEnabled(warmDeploy) == Installer.isInstalled();
+    }
+
+    private static boolean isEnabled(boolean warmDeploy) {
+        return !warmDeploy
+            && !"false".equals(System.getProperty(ENABLED_PROPERTY));
+    }
+
+    /**
+     * 共有している子コンテナを破棄する。
+     */
+    public static synchronized void clear() {
+        for (S2Container container : sharedContainers.values()) {
+            if (container != null) {
+                ((SharedContainerHandler) Proxy.getInvocationHandler(container)).container.destroy();
+            }
+        }
+        sharedContainers.clear();
+    }
+
+    /**
+     * 共有されている子コンテナかどうかを返却する。
+     *
+     * @param container コンテナ
+     * @return 共有されている子コンテナかどうか
+     */
+    public static boolean isShared(S2Container container) {
+        return Proxy.isProxyClass(container.getClass())
+            && Proxy.getInvocationHandler(container) instanceof SharedContainerHandler;
+    }
+
+    public S2Container create(String path) {
+        return delegate.create(path);
+    }
+
+    public S2Container create(String path, ClassLoader classLoader) {
+        return delegate.create(path, classLoader);
+    }
+
+    /**
+     * 子コンテナを共有してincludeする。
+     * <p>
+     * クラスパスから見つけられないパスの場合、共有できないコンポーネントを含む場合は共有しない。<br>
+     * 共有した子コンテナとその子孫はrootのコンテナに子孫として登録する。
+     */
+    public S2Container include(S2Container parent, String path) {
+        if (path.indexOf("..") >= 0
+            || ResourceUtil.getResourceNoException(path) == null) {
+            return delegate.include(parent, path);
+        }
+        S2Container root = parent.getRoot();
+        synchronized (root) {
+            if (root.hasDescendant(path)) {
+                S2Container child = root.getDescendant(path);
+                parent.include(child);
+                return child;
+            }
+            S2Container shared = getSharedContainer(path);
+            if (shared == null) {
+                return delegate.include(parent, path);
+            }
+            parent.include(shared);
+            registerDescendants(root, shared);
+            return shared;
+        }
+    }
+
+    /**
+     * 共有する子コンテナを返却する。
+     *
+     * @param path diconファイルのパス
+     * @return 子コンテナのプロキシ、共有できない場合は<code>null</code>
+     */
+    private S2Container getSharedContainer(String path) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader instanceof UnitClassLoader) {
+            classLoader = classLoader.getParent();
+        }
+        List<Object> key = new ArrayList<Object>();
+        key.add(path);
+        key.add(S2Bootstrap.getResourceStamp(path));
+        key.add(Env.getValue());
+        key.add(classLoader);
+        synchronized (SharedIncludeProvider.class) {
+            if (sharedContainers.containsKey(key)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("reuse shared container:" + path);
+                }
+                return sharedContainers.get(key);
+            }
+            S2Container child = createChild(path, classLoader);
+            S2Container shared = null;
+            if (isSharable(child, new IdentityHashMap<S2Container, Boolean>())) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("create shared container:" + path);
+                }
+                shared =
+                    (S2Container) Proxy.newProxyInstance(
+                        S2Container.class.getClassLoader(),
+                        new Class<?>[] { S2Container.class },
+                        new SharedContainerHandler(child));
+            } else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("not sharable container:" + path);
+                }
+                child.destroy();
+            }
+            sharedContainers.put(key, shared);
+            return shared;
+        }
+    }
+
+    /**
+     * 子コンテナを専用のrootのコンテナにincludeして生成する。
+     *
+     * @param path diconファイルのパス
+     * @param classLoader 生成に使用するクラスローダ
+     * @return 子コンテナ
+     */
+    private S2Container createChild(String path, ClassLoader classLoader) {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            return delegate.include(S2ContainerFactory.create(), path);
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
+    /**
+     * コンテナとその子孫がsingletonとprototypeのコンポーネントのみを含むかどうかを返却する。
+     *
+     * @param container コンテナ
+     * @param visited 確認済みのコンテナ
+     * @return 共有できるかどうか
+     */
+    private static boolean isSharable(S2Container container,
+            Map<S2Container, Boolean> visited) {
+        if (visited.put(container, Boolean.TRUE) != null) {
+            return true;
+        }
+        for (int i = 0; i < container.getComponentDefSize(); i++) {
+            InstanceDef instanceDef =
+                container.getComponentDef(i).getInstanceDef();
+            if (instanceDef != null
+                && !InstanceDef.SINGLETON_NAME.equals(instanceDef.getName())
+                && !InstanceDef.PROTOTYPE_NAME.equals(instanceDef.getName())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < container.getChildSize(); i++) {
+            if (!isSharable(container.getChild(i), visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * コンテナとその子孫をrootのコンテナに子孫として登録する。
+     *
+     * @param root rootのコンテナ
+     * @param container 登録するコンテナ
+     */
+    private static void registerDescendants(S2Container root,
+            S2Container container) {
+        String path = container.getPath();
+        if (path != null) {
+            if (root.hasDescendant(path)) {
+                return;
+            }
+            root.registerDescendant(container);
+        }
+        for (int i = 0; i < container.getChildSize(); i++) {
+            registerDescendants(root, container.getChild(i));
+        }
+    }
+
+    /**
+     * 親コンテナからの変更を子コンテナに伝えないためのハンドラ。
+     *
+     * @author m_nori
+     */
+    private static class SharedContainerHandler implements InvocationHandler {
+        final S2Container container;
+
+        SharedContainerHandler(S2Container container) {
+            this.container = container;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            String name = method.getName();
+            if ("destroy".equals(name) || "setRoot".equals(name)
+                || "addParent".equals(name)) {
+                return null;
+            }
+            try {
+                return method.invoke(container, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    /**
+     * {@link S2ContainerFactory}のProviderを置き換える。
+     *
+     * @author m_nori
+     */
+    private static class Installer extends S2ContainerFactory {
+        static synchronized void install() {
+            if (provider != null && !(provider instanceof SharedIncludeProvider)) {
+                provider = new SharedIncludeProvider(provider);
+            }
+        }
+
+        static synchronized void uninstall() {
+            if (provider instanceof SharedIncludeProvider) {
+                provider = ((SharedIncludeProvider) provider).delegate;
+            }
+        }
+
+        static synchronized boolean isInstalled() {
+            return provider instanceof SharedIncludeProvider;
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package org.seasar.test.context;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.junit.runners.model.TestClass;
+import org.seasar.framework.container.ComponentDef;
 import org.seasar.framework.container.S2Container;
+import org.seasar.framework.env.Env;
 import org.seasar.framework.log.Logger;
 import org.seasar.framework.util.ResourceUtil;
+import org.seasar.test.annotation.ContextConfiguration;
 import org.seasar.test.annotation.RootDicon;
+import org.seasar.test.context.include.ContainerInclude;
 
 /**
  * テストのクラス・メソッドとコンテナを管理する。
@@ -19,12 +26,16 @@ public class TestContext {
 
     private String rootDicon;
 
+    private ContainerKey containerKey;
+
     private ContainerHolder containerHolder;
 
     TestClass testClass;
 
     private Object testInstance;
 
+    private boolean concurrent;
+
     /**
      * TestContextを初期化する。
      * <p>
@@ -36,6 +47,36 @@ public class TestContext {
         this.testClass = testClass;
         this.containerHolder = containerHolder;
         this.rootDicon = retrieveRootDicon();
+        this.containerKey =
+            new ContainerKey(rootDicon, retrieveIncludes(), Env.getValue());
+    }
+
+    /**
+     * 同じテストクラスとコンテナを使用するTestContextを生成する。
+     * <p>
+     * テストメソッドを並行に実行する場合に、テストメソッドごとのTestContextとして使用する。<br>
+     * テストインスタンスは引き継がない。
+     *
+     * @param testContext 元となるTestContext
+     * @see #isConcurrent()
+     */
+    public TestContext(TestContext testContext) {
+        this.testClass = testContext.testClass;
+        this.containerHolder = testContext.containerHolder;
+        this.rootDicon = testContext.rootDicon;
+        this.containerKey = testContext.containerKey;
+        this.concurrent = true;
+    }
+
+    /**
+     * 並行に実行しているテストメソッドのTestContextかどうかを返却する。
+     * <p>
+     * 並行に実行している場合、コンテナは他のテストメソッドと共有している。
+     *
+     * @return 並行に実行しているテストメソッドのTestContextかどうか
+     */
+    public boolean isConcurrent() {
+        return concurrent;
     }
 
     /**
@@ -47,7 +88,35 @@ public class TestContext {
         if (logger.isDebugEnabled()) {
             logger.debug("destroy container");
         }
-        containerHolder.destroyContainer(rootDicon);
+        containerHolder.destroyContainer(containerKey);
+    }
+
+    /**
+     * コンテナのすべてのコンポーネントのインスタンスを破棄する。
+     * <p>
+     * diconファイルの再読み込みは行わず、次に取得した際にインスタンスが再生成される。
+     */
+    public void resetInstances() {
+        if (logger.isDebugEnabled()) {
+            logger.debug("reset instances");
+        }
+        containerHolder.resetInstances(containerKey);
+    }
+
+    /**
+     * 指定したコンポーネントのみを初期化する。
+     * <p>
+     * コンテナの再読み込みは行わず、指定したコンポーネントとそれを保持するsingletonのコンポーネントのみを再生成する。
+     *
+     * @param names 初期化するコンポーネント名
+     * @param types 初期化するコンポーネントの型
+     * @see ComponentResetter
+     */
+    public void resetComponents(String[] names, Class<?>[] types) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("reset components");
+        }
+        new ComponentResetter().reset(getContainer(), names, types);
     }
 
     /**
@@ -56,7 +125,29 @@ public class TestContext {
      * @return
      */
     public S2Container getContainer() {
-        return containerHolder.getContainer(rootDicon);
+        return containerHolder.getContainer(containerKey);
+    }
+
+    /**
+     * コンテナのコンポーネントのインデックスを返却する。
+     *
+     * @return インデックス
+     */
+    public ComponentIndex getComponentIndex() {
+        return ComponentIndex.getInstance(getContainer());
+    }
+
+    /**
+     * コンポーネントを返却する。
+     * <p>
+     * コンポーネント定義は{@link ComponentIndex}から取得する。
+     *
+     * @param key コンポーネント名または型
+     * @return コンポーネント、存在しない場合は<code>null</code>
+     */
+    public Object getComponent(Object key) {
+        ComponentDef componentDef = getComponentIndex().getComponentDef(key);
+        return componentDef != null ? componentDef.getComponent() : null;
     }
 
     /**
@@ -68,6 +159,15 @@ public class TestContext {
         return rootDicon;
     }
 
+    /**
+     * 現在使用しているコンテナのキーを返却する。
+     *
+     * @return コンテナのキー
+     */
+    public ContainerKey getContainerKey() {
+        return containerKey;
+    }
+
     /**
      * テストクラスを返却する。
      *
@@ -133,6 +233,20 @@ public class TestContext {
         return rootDicon;
     }
 
+    /**
+     * {@link ContextConfiguration}に指定されたincludeを取得する。
+     *
+     * @return コンテナに追加するinclude
+     */
+    protected List<Class<? extends ContainerInclude>> retrieveIncludes() {
+        ContextConfiguration configuration =
+            getTargetClass().getAnnotation(ContextConfiguration.class);
+        if (configuration == null) {
+            return null;
+        }
+        return Arrays.asList(configuration.includes());
+    }
+
     /**
      * TestContextを文字列化する。
      */
@@ -1,17 +1,17 @@
 package org.seasar.test.context;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.runners.model.TestClass;
 import org.seasar.framework.log.Logger;
-import org.seasar.test.annotation.ContextConfiguration;
 import org.seasar.test.annotation.InstanceRule;
-import org.seasar.test.context.include.ContainerInclude;
 import org.seasar.test.rule.S2InstanceRule;
 import org.seasar.test.rule.S2TestRule;
+import org.seasar.test.timing.TimingRecorder;
 
 /**
  * テストの実行管理を行う。
@@ -35,27 +35,65 @@ public class TestContextManager {
 
 	private final ContainerHolder containerHolder = new ContainerHolder();
 
-	/** InjectionRuleはデフォルトのPrepareInstanceRulesとして使用する。 */
-	private List<S2InstanceRule> defaultPrepareInstanceRules;
+	/** テストメソッドを並行に実行する場合の、スレッドごとのtestContext */
+	private final ThreadLocal<TestContext> instanceTestContext = new ThreadLocal<TestContext>();
+
+	private boolean concurrent;
+
+	private final RuleDescriptor ruleDescriptor;
+
+	/**
+	 * InjectionRuleはデフォルトのPrepareInstanceRulesとして使用する。
+	 * <p>
+	 * テストメソッドを並行に実行する場合は複数のスレッドから参照されるため、生成時に組み立てて変更しない。
+	 */
+	private final List<S2InstanceRule> defaultPrepareInstanceRules;
 
 	/**
 	 * TestContextManagerを初期化する。
+	 * <p>
+	 * コンテナの読み込みは行わず、最初にコンテナが必要になった時点で読み込む。
 	 * 
 	 * @param clazz
 	 *            テストクラス
 	 */
 	public TestContextManager(TestClass testClass) throws Exception {
 		this.testContext = new TestContext(testClass, containerHolder);
-		initByContextConfiguration();
+		this.ruleDescriptor = new RuleDescriptor(testClass);
+		this.defaultPrepareInstanceRules = createDefaultPrepareInstanceRules();
 	}
 
 	/**
 	 * testContextを返却する。
+	 * <p>
+	 * テストメソッドを並行に実行する場合は、現在のスレッドで実行しているテストメソッドのtestContextを返却する。
 	 * 
 	 * @return testContext
 	 */
 	public final TestContext getTestContext() {
-		return testContext;
+		TestContext context = instanceTestContext.get();
+		return context != null ? context : testContext;
+	}
+
+	/**
+	 * テストクラスのルールのフィールドを返却する。
+	 * 
+	 * @return ルールのフィールド
+	 */
+	public final RuleDescriptor getRuleDescriptor() {
+		return ruleDescriptor;
+	}
+
+	/**
+	 * テストメソッドを並行に実行するかどうかを設定する。
+	 * <p>
+	 * 並行に実行する場合は、テストインスタンスごとにtestContextを生成する。
+	 * 
+	 * @param concurrent
+	 *            テストメソッドを並行に実行するかどうか
+	 */
+	public void setConcurrent(boolean concurrent) {
+		this.concurrent = concurrent;
 	}
 
 	/**
@@ -69,6 +107,22 @@ public class TestContextManager {
 		prepareClassS2TestRules();
 	}
 
+	/**
+	 * テストクラス終了時のフック処理を行う。
+	 * <p>
+	 * 使用していたコンテナを解放する。コンテナはキャッシュに残り、後続のテストクラスで再利用される。<br>
+	 * デフォルトのPrepareInstanceRuleが保持しているコンテナへの参照も破棄する。
+	 */
+	public void afterTestClass() {
+		if (logger.isDebugEnabled()) {
+			logger.debug("afterTestClass()");
+		}
+		for (S2InstanceRule rule : defaultPrepareInstanceRules) {
+			rule.afterTestClass();
+		}
+		containerHolder.releaseContainer();
+	}
+
 	/**
 	 * テストインスタンス生成処理のフック処理を行う。
 	 * 
@@ -81,26 +135,26 @@ public class TestContextManager {
 		if (logger.isDebugEnabled()) {
 			logger.debug("prepareTestInstance(): instance [" + testInstance + "]");
 		}
+		if (concurrent) {
+			instanceTestContext.set(new TestContext(testContext));
+		}
 		getTestContext().setTestInstance(testInstance);
 		applyPrepareInstanceRules();
 		prepareMethodS2TestRules();
 	}
 
 	/**
-	 * {@link ContextConfiguration}に設定された情報でContextを初期化する。
-	 * 
-	 * @throws すべての例外発生時
-	 */
-	protected void initByContextConfiguration() throws Exception {
-		ContextConfiguration configuration = getTestContext().getTargetClass().getAnnotation(
-		        ContextConfiguration.class);
-		if (configuration != null) {
-			Class<? extends ContainerInclude>[] classes = configuration.includes();
-			for (Class<? extends ContainerInclude> clazz : classes) {
-				ContainerInclude include = clazz.newInstance();
-				include.execute(getTestContext().getContainer());
-			}
+	 * テストメソッド終了時のフック処理を行う。
+	 * <p>
+	 * テストインスタンスに貸し出した{@link PrototypePool}のコンポーネントをプールに戻し、
+	 * 現在のスレッドに設定したtestContextを解除する。
+	 */
+	public void afterTestMethod() {
+		Object testInstance = getTestContext().getTestInstance();
+		if (testInstance != null) {
+			PrototypePool.release(testInstance);
 		}
+		instanceTestContext.remove();
 	}
 
 	/**
@@ -123,14 +177,21 @@ public class TestContextManager {
 	 *             すべての例外発生時
 	 */
 	protected void applyPrepareInstanceRules() throws Exception {
-		List<S2InstanceRule> prepareRules = createPrepareInstanceRules(getTestContext()
-		        .getTestInstance());
+		applyPrepareInstanceRules(defaultPrepareInstanceRules);
+		applyPrepareInstanceRules(retrievePrepareInstanceRules(getTestContext()
+		        .getTestInstance()));
+	}
+
+	private void applyPrepareInstanceRules(List<S2InstanceRule> prepareRules) throws Exception {
 		for (S2InstanceRule rule : prepareRules) {
+			long start = TimingRecorder.start();
 			try {
 				rule.apply(getTestContext());
 			} catch (Exception e) {
 				logger.warn("error TestExecutionListener:" + rule);
 				throw e;
+			} finally {
+				TimingRecorder.stop("instanceRule:" + rule.getClass().getSimpleName(), start);
 			}
 		}
 	}
@@ -149,63 +210,49 @@ public class TestContextManager {
 	}
 
 	/**
-	 * PrepareInstanceRuleを取得する。
-	 * 
-	 * @param target
-	 *            対象オブジェクト
-	 * @return 取得したルール
-	 */
-	private List<S2InstanceRule> createPrepareInstanceRules(Object target) {
-		List<S2InstanceRule> result = new ArrayList<S2InstanceRule>();
-		result.addAll(getDefaultPrepareInstanceRules());
-		result.addAll(retrievePrepareInstanceRules(target));
-		return result;
-	}
-
-	/**
-	 * デフォルトのPrepareInstanceRuleを返却する。
+	 * デフォルトのPrepareInstanceRuleを生成する。
 	 * 
 	 * @return デフォルトのS2PrepareInstanceRule
 	 */
-	private List<S2InstanceRule> getDefaultPrepareInstanceRules() {
-		if (defaultPrepareInstanceRules == null) {
-			defaultPrepareInstanceRules = new ArrayList<S2InstanceRule>();
-			for (String className : DEFAULT_PREPARE_INSTANCE_RULES_CLASS_NAMES) {
-				try {
-					@SuppressWarnings("unchecked")
-					Class<? extends S2InstanceRule> clazz = (Class<? extends S2InstanceRule>) getClass()
-					        .getClassLoader().loadClass(className);
-					defaultPrepareInstanceRules.add(clazz.newInstance());
-				} catch (Throwable e) {
-					logger.warn("Could not load default PrepareInstanceRule class [" + className
-					        + "] ");
-				}
+	private List<S2InstanceRule> createDefaultPrepareInstanceRules() {
+		List<S2InstanceRule> rules = new ArrayList<S2InstanceRule>();
+		for (String className : DEFAULT_PREPARE_INSTANCE_RULES_CLASS_NAMES) {
+			try {
+				@SuppressWarnings("unchecked")
+				Class<? extends S2InstanceRule> clazz = (Class<? extends S2InstanceRule>) getClass()
+				        .getClassLoader().loadClass(className);
+				rules.add(clazz.newInstance());
+			} catch (Throwable e) {
+				logger.warn("Could not load default PrepareInstanceRule class [" + className
+				        + "] ");
 			}
 		}
-		return defaultPrepareInstanceRules;
+		return Collections.unmodifiableList(rules);
 	}
 
 	/**
 	 * インスタンスに付与されているPrepareInstanceRuleを返却する。
+	 * <p>
+	 * フィールドは{@link RuleDescriptor}に保持したものを使用する。
 	 * 
 	 * @param target
 	 *            対象インスタンス
 	 * @return 対象インスタンスに付与されているPrepareInstanceRule
 	 */
 	private List<S2InstanceRule> retrievePrepareInstanceRules(Object target) {
-		return getTestContext().getTestClass().getAnnotatedFieldValues(target, InstanceRule.class,
-		        S2InstanceRule.class);
+		return ruleDescriptor.getInstanceRules(target);
 	}
 
 	/**
 	 * インスタンスに設定されているS2TestRuleを抽出する。
+	 * <p>
+	 * フィールドは{@link RuleDescriptor}に保持したものを使用する。
 	 * 
 	 * @param target
 	 * @return
 	 */
 	private List<S2TestRule> retrieveMethodS2TestRules(Object target) {
-		return getTestContext().getTestClass().getAnnotatedFieldValues(target, Rule.class,
-		        S2TestRule.class);
+		return ruleDescriptor.getRules(target, S2TestRule.class);
 	}
 
 	/**
@@ -0,0 +1,54 @@
+package org.seasar.test.context.include;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.seasar.framework.log.Logger;
+
+/**
+ * {@link H2Template}から生成したインメモリデータベースのDataSource。
+ * <p>
+ * 生成時にテンプレートからデータベースを生成し、{@link #close()}を呼び出すまで保持する。
+ *
+ * @author m_nori
+ */
+public class H2DataSource extends JdbcDataSource {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(H2DataSource.class);
+
+    private transient Connection keepAliveConnection;
+
+    /**
+     * テンプレートからデータベースを生成する。
+     *
+     * @param template テンプレート
+     * @throws SQLException データベースの生成に失敗した場合
+     */
+    public H2DataSource(H2Template template) throws SQLException {
+        keepAliveConnection = template.createDatabase();
+        setURL(keepAliveConnection.getMetaData().getURL());
+        setUser(H2Template.USER);
+        setPassword(H2Template.PASSWORD);
+    }
+
+    /**
+     * データベースを破棄する。
+     */
+    public synchronized void close() {
+        if (keepAliveConnection == null) {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("close database:" + getURL());
+        }
+        try {
+            keepAliveConnection.close();
+        } catch (SQLException e) {
+            logger.warn("failed to close database:" + getURL(), e);
+        }
+        keepAliveConnection = null;
+    }
+}
@@ -0,0 +1,53 @@
+package org.seasar.test.context.include;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.impl.ArgDefImpl;
+import org.seasar.framework.container.impl.ComponentDefImpl;
+import org.seasar.framework.container.impl.DestroyMethodDefImpl;
+import org.seasar.framework.log.Logger;
+
+/**
+ * コンテナに対してH2のインメモリデータベースを使用するDataSourceを追加する。
+ * <p>
+ * スキーマと初期データのスクリプトは{@link H2Template}によりJVMで1度だけ適用し、
+ * コンテナごとにその複製を使用する。<br>
+ * DataSourceはsingletonのコンポーネントとして登録され、破棄時にデータベースも破棄される。
+ * そのため{@link org.seasar.test.rule.DirtyContainerRule}による初期化後は新しい複製が使用される。<br>
+ * スクリプトは{@link #getScriptPaths()}をオーバーライドして指定する。
+ *
+ * @author m_nori
+ */
+public class H2DatabaseInclude implements ContainerInclude {
+    private static final Logger logger =
+        Logger.getLogger(H2DatabaseInclude.class);
+
+    public void execute(S2Container container) throws Exception {
+        logger.debug("H2DatabaseInclude.execute()");
+        H2Template template = H2Template.getInstance(getScriptPaths());
+        ComponentDefImpl componentDef =
+            new ComponentDefImpl(H2DataSource.class, getComponentName());
+        componentDef.addArgDef(new ArgDefImpl(template));
+        componentDef.addDestroyMethodDef(new DestroyMethodDefImpl("close"));
+        container.register(componentDef);
+    }
+
+    /**
+     * 適用するスクリプトのパスを返却する。
+     * <p>
+     * デフォルトでは「schema.sql」「data.sql」を順に適用する。
+     *
+     * @return スクリプトのパス
+     */
+    protected String[] getScriptPaths() {
+        return new String[] { "schema.sql", "data.sql" };
+    }
+
+    /**
+     * DataSourceのコンポーネント名を返却する。
+     *
+     * @return コンポーネント名
+     */
+    protected String getComponentName() {
+        return "dataSource";
+    }
+}
@@ -0,0 +1,188 @@
+package org.seasar.test.context.include;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.tools.RunScript;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * スキーマと初期データを適用済みのH2データベースのテンプレート。
+ * <p>
+ * スクリプトの適用はテンプレートごとにJVMで1度だけ行い、適用結果をH2のメモリ上のファイルシステム(memFS)にSCRIPTとして出力する。<br>
+ * {@link #createDatabase()}ではそのSCRIPTをRUNSCRIPTで新しいインメモリデータベースに読み込むため、
+ * 元のスクリプトの再実行よりも高速に同じ状態のデータベースを生成できる。<br>
+ * SCRIPTにはテンプレート用のデータベースのユーザも出力されるため、テンプレートと生成するデータベースには
+ * 同じユーザ({@value #USER})で接続する。
+ *
+ * @author m_nori
+ */
+public class H2Template {
+    /** データベースのユーザ名。 */
+    public static final String USER = "sa";
+
+    /** データベースのパスワード。 */
+    public static final String PASSWORD = "";
+
+    private static final Logger logger = Logger.getLogger(H2Template.class);
+
+    private static final ConcurrentMap<String, H2Template> templates =
+        new ConcurrentHashMap<String, H2Template>();
+
+    private static final AtomicInteger templateSequence = new AtomicInteger();
+
+    private final String name;
+
+    private final List<String> scriptPaths;
+
+    private final AtomicInteger databaseSequence = new AtomicInteger();
+
+    private volatile String snapshotPath;
+
+    /**
+     * H2Templateを生成する。
+     *
+     * @param name テンプレート名
+     * @param scriptPaths 適用するスクリプトのパス
+     */
+    protected H2Template(String name, List<String> scriptPaths) {
+        this.name = name;
+        this.scriptPaths = scriptPaths;
+    }
+
+    /**
+     * スクリプトに対応するテンプレートを返却する。
+     * <p>
+     * 同じスクリプトの組み合わせに対しては同じテンプレートを返却する。
+     *
+     * @param scriptPaths 適用するスクリプトのパス
+     * @return テンプレート
+     */
+    public static H2Template getInstance(String[] scriptPaths) {
+        String key = Arrays.toString(scriptPaths);
+        H2Template template = templates.get(key);
+        if (template == null) {
+            H2Template newTemplate =
+                new H2Template("s2test-" + templateSequence.incrementAndGet(),
+                    Arrays.asList(scriptPaths));
+            template = templates.putIfAbsent(key, newTemplate);
+            if (template == null) {
+                template = newTemplate;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * テンプレートと同じ状態のインメモリデータベースを生成する。
+     * <p>
+     * 返却したコネクションを閉じるとデータベースは破棄される。
+     *
+     * @return 生成したデータベースのURLとコネクション
+     * @throws SQLException データベースの生成に失敗した場合
+     */
+    public Connection createDatabase() throws SQLException {
+        String path = getSnapshotPath();
+        String url =
+            "jdbc:h2:mem:" + name + "-" + databaseSequence.incrementAndGet();
+        if (logger.isDebugEnabled()) {
+            logger.debug("create database:" + url);
+        }
+        Connection connection = DriverManager.getConnection(url, USER, PASSWORD);
+        try {
+            execute(connection, "RUNSCRIPT FROM '" + path + "'");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * テンプレート名を返却する。
+     *
+     * @return テンプレート名
+     */
+    public String getName() {
+        return name;
+    }
+
+    private String getSnapshotPath() throws SQLException {
+        String path = snapshotPath;
+        if (path == null) {
+            synchronized (this) {
+                path = snapshotPath;
+                if (path == null) {
+                    path = buildSnapshot();
+                    snapshotPath = path;
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * スクリプトをテンプレート用のデータベースに適用し、その結果をSCRIPTとして出力する。
+     *
+     * @return 出力したSCRIPTのパス
+     * @throws SQLException スクリプトの適用に失敗した場合
+     */
+    protected String buildSnapshot() throws SQLException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("build template:" + name + " scripts:" + scriptPaths);
+        }
+        String path = "memFS:s2test/" + name + ".sql";
+        Connection connection =
+            DriverManager.getConnection("jdbc:h2:mem:" + name + "-template",
+                USER, PASSWORD);
+        try {
+            for (String scriptPath : scriptPaths) {
+                runScript(connection, scriptPath);
+            }
+            execute(connection, "SCRIPT TO '" + path + "'");
+        } finally {
+            connection.close();
+        }
+        return path;
+    }
+
+    private static void runScript(Connection connection, String scriptPath)
+            throws SQLException {
+        URL url = ResourceUtil.getResourceNoException(scriptPath);
+        if (url == null) {
+            throw new IllegalArgumentException("script not found:" + scriptPath);
+        }
+        try {
+            Reader reader = new InputStreamReader(url.openStream(), "UTF-8");
+            try {
+                RunScript.execute(connection, reader);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to read script:" + scriptPath, e);
+        }
+    }
+
+    private static void execute(Connection connection, String sql)
+            throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.seasar.test.daemon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+
+/**
+ * {@link S2TestDaemon}にテストの実行を要求するクライアント。
+ * <p>
+ * 引数に指定したテストクラスを実行し、結果を標準出力に出力する。<br>
+ * すべて成功した場合は0、失敗したテストがある場合は1で終了する。<br>
+ * 引数に<code>--stop</code>を指定した場合は常駐プロセスを停止する。
+ * 
+ * <pre>
+ * java -cp s2test.jar org.seasar.test.daemon.S2TestClient example.FooTest example.BarTest
+ * </pre>
+ * 
+ * @author m_nori
+ */
+public class S2TestClient {
+
+	/**
+	 * 常駐プロセスにテストの実行を要求する。
+	 * 
+	 * @param args
+	 *            テストクラス名、または<code>--stop</code>
+	 * @throws IOException
+	 *             常駐プロセスとの通信に失敗した場合
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("usage: S2TestClient <test class>... | --stop");
+			System.exit(2);
+		}
+		int port = Integer.getInteger(S2TestDaemon.PORT_PROPERTY, S2TestDaemon.DEFAULT_PORT);
+		StringBuilder command = new StringBuilder();
+		if ("--stop".equals(args[0])) {
+			command.append(S2TestDaemon.STOP_COMMAND);
+		} else {
+			command.append(S2TestDaemon.RUN_COMMAND);
+			for (String arg : args) {
+				command.append(' ').append(arg);
+			}
+		}
+		System.exit(execute(port, command.toString()));
+	}
+
+	/**
+	 * 常駐プロセスにコマンドを送信し、結果を標準出力に出力する。
+	 * 
+	 * @param port
+	 *            常駐プロセスのポート
+	 * @param command
+	 *            コマンド
+	 * @return 終了コード
+	 * @throws IOException
+	 *             常駐プロセスとの通信に失敗した場合
+	 */
+	protected static int execute(int port, String command) throws IOException {
+		Socket socket = new Socket("127.0.0.1", port);
+		try {
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+			writer.write(command);
+			writer.write('\n');
+			writer.flush();
+			BufferedReader reader =
+			        new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			for (String line; (line = reader.readLine()) != null;) {
+				if (line.startsWith(S2TestDaemon.EXIT_PREFIX)) {
+					return Integer.parseInt(line.substring(S2TestDaemon.EXIT_PREFIX.length()));
+				}
+				System.out.println(line);
+			}
+			return 2;
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package org.seasar.test.daemon;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.seasar.framework.log.Logger;
+import org.seasar.test.context.ClasspathIndex;
+import org.seasar.test.context.ContainerCache;
+import org.seasar.test.context.IndexedClassLoader;
+import org.seasar.test.context.S2Bootstrap;
+import org.seasar.test.context.SharedIncludeProvider;
+
+/**
+ * テストを実行し続ける常駐プロセス。
+ * <p>
+ * ループバックアドレスのポート(システムプロパティ{@value #PORT_PROPERTY}、デフォルトは{@value #DEFAULT_PORT})で
+ * {@link S2TestClient}からの要求を待ち受け、指定されたテストクラスをJUnitで実行する。<br>
+ * 引数に指定したディレクトリ(target/test-classes、target/classes等)は子のクラスローダから読み込み、
+ * 実行の間も{@link ContainerCache}のコンテナとクラスローダを保持する。<br>
+ * 実行前にディレクトリ内のファイルを確認し、クラスファイルが変更されていた場合はクラスローダを作り直してコンテナを破棄し、
+ * diconファイル等のリソースのみが変更されていた場合はコンテナのみを破棄する。<br>
+ * ディレクトリはJVMのクラスパスに含めず、依存するjarファイルのみをクラスパスに指定して起動する。
+ * 
+ * <pre>
+ * java -cp &lt;依存するjarファイル&gt; org.seasar.test.daemon.S2TestDaemon target/test-classes target/classes
+ * </pre>
+ * 
+ * @author m_nori
+ */
+public class S2TestDaemon {
+	/** 待ち受けるポートを指定するシステムプロパティ。 */
+	public static final String PORT_PROPERTY = "s2test.daemon.port";
+
+	/** 待ち受けるポートのデフォルト値。 */
+	public static final int DEFAULT_PORT = 19191;
+
+	/** テストの実行を要求するコマンド。 */
+	static final String RUN_COMMAND = "RUN";
+
+	/** 停止を要求するコマンド。 */
+	static final String STOP_COMMAND = "STOP";
+
+	/** 実行結果の終了コードを表す行の接頭辞。 */
+	static final String EXIT_PREFIX = "S2TEST-EXIT ";
+
+	private static final Logger logger = Logger.getLogger(S2TestDaemon.class);
+
+	private final List<File> directories;
+
+	private final ClassLoader parentClassLoader;
+
+	private ClassLoader testClassLoader;
+
+	private long classStamp;
+
+	private long resourceStamp;
+
+	/**
+	 * S2TestDaemonを生成する。
+	 * 
+	 * @param directories
+	 *            子のクラスローダから読み込むディレクトリ
+	 */
+	public S2TestDaemon(List<File> directories) {
+		this.directories = directories;
+		this.parentClassLoader = Thread.currentThread().getContextClassLoader();
+	}
+
+	/**
+	 * 常駐プロセスを起動する。
+	 * 
+	 * @param args
+	 *            子のクラスローダから読み込むディレクトリ
+	 * @throws IOException
+	 *             ポートを開けなかった場合
+	 */
+	public static void main(String[] args) throws IOException {
+		List<File> directories = new ArrayList<File>();
+		for (String arg : args) {
+			directories.add(new File(arg).getAbsoluteFile());
+		}
+		new S2TestDaemon(directories).serve(Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT));
+	}
+
+	/**
+	 * 停止を要求されるまで要求を待ち受ける。
+	 * <p>
+	 * 要求は1件ずつ順に処理する。
+	 * 
+	 * @param port
+	 *            待ち受けるポート
+	 * @throws IOException
+	 *             ポートを開けなかった場合
+	 */
+	public void serve(int port) throws IOException {
+		ServerSocket serverSocket =
+		        new ServerSocket(port, 0, InetAddress.getByName("127.0.0.1"));
+		logger.info("s2test daemon started. port:" + port + " directories:" + directories);
+		try {
+			while (true) {
+				Socket socket = serverSocket.accept();
+				try {
+					if (!handle(socket)) {
+						break;
+					}
+				} catch (IOException e) {
+					logger.warn("failed to handle request", e);
+				} finally {
+					socket.close();
+				}
+			}
+		} finally {
+			serverSocket.close();
+			ContainerCache.getInstance().clear();
+		}
+		logger.info("s2test daemon stopped.");
+	}
+
+	/**
+	 * 要求を処理する。
+	 * <p>
+	 * テストクラスの読み込みや初期化に失敗した場合は、例外を出力して終了コード2を返却し、次の要求を待ち受ける。
+	 * 
+	 * @param socket
+	 *            クライアントとのソケット
+	 * @return 待ち受けを続ける場合は<code>true</code>
+	 * @throws IOException
+	 *             通信に失敗した場合
+	 */
+	protected boolean handle(Socket socket) throws IOException {
+		BufferedReader reader =
+		        new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+		PrintStream out = new PrintStream(socket.getOutputStream(), true, "UTF-8");
+		String line = reader.readLine();
+		if (line == null) {
+			return true;
+		}
+		String[] tokens = line.trim().split("\\s+");
+		if (STOP_COMMAND.equals(tokens[0])) {
+			out.println(EXIT_PREFIX + 0);
+			return false;
+		}
+		if (!RUN_COMMAND.equals(tokens[0]) || tokens.length < 2) {
+			out.println("unknown command:" + line);
+			out.println(EXIT_PREFIX + 2);
+			return true;
+		}
+		int exitCode;
+		try {
+			List<String> classNames = new ArrayList<String>();
+			for (int i = 1; i < tokens.length; i++) {
+				classNames.add(tokens[i]);
+			}
+			exitCode = run(classNames, out) ? 0 : 1;
+		} catch (ClassNotFoundException e) {
+			out.println("class not found:" + e.getMessage());
+			exitCode = 2;
+		} catch (Throwable e) {
+			logger.warn("failed to run:" + line, e);
+			e.printStackTrace(out);
+			exitCode = 2;
+		}
+		out.println(EXIT_PREFIX + exitCode);
+		return true;
+	}
+
+	/**
+	 * テストクラスを実行する。
+	 * 
+	 * @param classNames
+	 *            テストクラス名
+	 * @param out
+	 *            実行結果の出力先
+	 * @return すべて成功した場合は<code>true</code>
+	 * @throws ClassNotFoundException
+	 *             テストクラスが見つからない場合
+	 */
+	protected synchronized boolean run(List<String> classNames, PrintStream out)
+	        throws ClassNotFoundException {
+		ClassLoader classLoader = prepareClassLoader();
+		Thread thread = Thread.currentThread();
+		ClassLoader original = thread.getContextClassLoader();
+		thread.setContextClassLoader(classLoader);
+		try {
+			Class<?>[] classes = new Class<?>[classNames.size()];
+			for (int i = 0; i < classes.length; i++) {
+				classes[i] = Class.forName(classNames.get(i), true, classLoader);
+			}
+			JUnitCore core = new JUnitCore();
+			core.addListener(new TextListener(out));
+			Result result = core.run(Request.classes(classes));
+			ContainerCache cache = ContainerCache.getInstance();
+			out.println("container cache: hit=" + cache.getHitCount() + " miss="
+			        + cache.getMissCount() + " size=" + cache.size());
+			return result.wasSuccessful();
+		} finally {
+			thread.setContextClassLoader(original);
+			ClasspathIndex.getInstance().save();
+		}
+	}
+
+	/**
+	 * テストクラスを読み込むクラスローダを返却する。
+	 * <p>
+	 * 前回の実行からクラスファイルが変更されていた場合はクラスローダを作り直し、コンテナを破棄する。<br>
+	 * それ以外のファイルのみが変更されていた場合はコンテナと{@link IndexedClassLoader}が保持するリソースの検索結果のみを破棄する。
+	 * 
+	 * @return クラスローダ
+	 */
+	protected ClassLoader prepareClassLoader() {
+		long[] stamps = new long[2];
+		for (File directory : directories) {
+			scan(directory, stamps);
+		}
+		boolean classChanged = testClassLoader == null || stamps[0] != classStamp;
+		boolean resourceChanged = stamps[1] != resourceStamp;
+		classStamp = stamps[0];
+		resourceStamp = stamps[1];
+		if (classChanged || resourceChanged) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("changes detected. class:" + classChanged + " resource:"
+				        + resourceChanged);
+			}
+			ContainerCache.getInstance().clear();
+			SharedIncludeProvider.clear();
+			IndexedClassLoader.clear();
+			S2Bootstrap.reset();
+		}
+		if (classChanged) {
+			testClassLoader = createClassLoader();
+		}
+		return testClassLoader;
+	}
+
+	/**
+	 * ディレクトリを読み込む子のクラスローダを生成する。
+	 * 
+	 * @return クラスローダ
+	 */
+	protected ClassLoader createClassLoader() {
+		URL[] urls = new URL[directories.size()];
+		for (int i = 0; i < urls.length; i++) {
+			try {
+				urls[i] = directories.get(i).toURI().toURL();
+			} catch (MalformedURLException e) {
+				throw new IllegalArgumentException(directories.get(i).toString(), e);
+			}
+		}
+		return new URLClassLoader(urls, parentClassLoader);
+	}
+
+	/**
+	 * ディレクトリ内のファイルの更新日時と数から変更を検出するための値を算出する。
+	 * 
+	 * @param file
+	 *            ファイルまたはディレクトリ
+	 * @param stamps
+	 *            クラスファイルとそれ以外のファイルの値
+	 */
+	private static void scan(File file, long[] stamps) {
+		File[] children = file.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (child.isDirectory()) {
+				scan(child, stamps);
+			} else {
+				int index = child.getName().endsWith(".class") ? 0 : 1;
+				stamps[index] = stamps[index] * 31 + child.lastModified() + child.length();
+			}
+		}
+	}
+}
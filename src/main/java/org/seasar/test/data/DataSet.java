@@ -0,0 +1,52 @@
+package org.seasar.test.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * テーブルに登録するデータの集合。
+ * <p>
+ * Excelファイルに対応し、シートの順にテーブルを保持する。
+ * 
+ * @author m_nori
+ */
+public class DataSet {
+
+	private final List<DataTable> tables = new ArrayList<DataTable>();
+
+	/**
+	 * テーブルを追加する。
+	 * 
+	 * @param table
+	 *            テーブル
+	 */
+	public void addTable(DataTable table) {
+		tables.add(table);
+	}
+
+	/**
+	 * テーブルを返却する。
+	 * 
+	 * @param tableName
+	 *            テーブル名
+	 * @return テーブル、存在しない場合は<code>null</code>
+	 */
+	public DataTable getTable(String tableName) {
+		for (DataTable table : tables) {
+			if (table.getTableName().equalsIgnoreCase(tableName)) {
+				return table;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * すべてのテーブルを返却する。
+	 * 
+	 * @return テーブル
+	 */
+	public List<DataTable> getTables() {
+		return Collections.unmodifiableList(tables);
+	}
+}
@@ -0,0 +1,157 @@
+package org.seasar.test.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.seasar.framework.log.Logger;
+
+/**
+ * 読み込んだExcelファイルの内容をJVM全体で共有するキャッシュ。
+ * <p>
+ * ファイルの内容のハッシュをキーに{@link DataSet}を保持するため、
+ * 同じExcelファイルを使用する複数のテストクラスでも読み込みは1度だけとなる。<br>
+ * 保持数の上限はシステムプロパティ{@value #MAX_SIZE_PROPERTY}で指定する(デフォルトは{@value #DEFAULT_MAX_SIZE})。<br>
+ * キャッシュした{@link DataSet}は複数のテストで共有されるため、変更してはならない。
+ * 
+ * @author m_nori
+ */
+public class DataSetCache {
+
+	/** 保持数の上限を指定するシステムプロパティ。 */
+	public static final String MAX_SIZE_PROPERTY = "s2test.dataSetCache.maxSize";
+
+	/** 保持数の上限のデフォルト値。 */
+	public static final int DEFAULT_MAX_SIZE = 16;
+
+	private static final Logger logger = Logger.getLogger(DataSetCache.class);
+
+	private static final DataSetCache instance = new DataSetCache(Math.max(1, Integer.getInteger(
+	        MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE)));
+
+	private final int maxSize;
+
+	private final Map<String, DataSet> dataSets;
+
+	private long hitCount;
+
+	private long missCount;
+
+	/**
+	 * DataSetCacheを生成する。
+	 * 
+	 * @param maxSize
+	 *            保持数の上限
+	 */
+	public DataSetCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.dataSets = new LinkedHashMap<String, DataSet>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, DataSet> eldest) {
+				return size() > DataSetCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * JVM全体で共有するキャッシュを返却する。
+	 * 
+	 * @return キャッシュ
+	 */
+	public static DataSetCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Excelファイルの内容を返却する。
+	 * <p>
+	 * 同じ内容のファイルを読み込み済みの場合はキャッシュから返却する。
+	 * 
+	 * @param url
+	 *            Excelファイル
+	 * @return 読み込んだデータ
+	 * @throws IOException
+	 *             読み込みに失敗した場合
+	 */
+	public DataSet getDataSet(URL url) throws IOException {
+		byte[] bytes = readBytes(url);
+		String hash = toHash(bytes);
+		synchronized (this) {
+			DataSet dataSet = dataSets.get(hash);
+			if (dataSet != null) {
+				hitCount++;
+				return dataSet;
+			}
+			missCount++;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("read xls:" + url);
+		}
+		DataSet dataSet = new XlsReader().read(new ByteArrayInputStream(bytes));
+		synchronized (this) {
+			dataSets.put(hash, dataSet);
+		}
+		return dataSet;
+	}
+
+	/**
+	 * キャッシュを破棄する。
+	 */
+	public synchronized void clear() {
+		dataSets.clear();
+	}
+
+	/**
+	 * キャッシュのヒット数を返却する。
+	 * 
+	 * @return ヒット数
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * キャッシュのミス数を返却する。
+	 * 
+	 * @return ミス数
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	private static byte[] readBytes(URL url) throws IOException {
+		InputStream in = url.openStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int n; (n = in.read(buffer)) != -1;) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String toHash(byte[] bytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(bytes);
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+				sb.append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package org.seasar.test.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.seasar.framework.log.Logger;
+
+/**
+ * {@link DataSet}の内容をデータベースに登録する。
+ * <p>
+ * テーブルごとに既存の行を削除してから登録する。<br>
+ * 削除は外部キーを考慮してシートの逆順に、登録はシートの順に行う。<br>
+ * 登録はPreparedStatementのバッチで{@link #setBatchSize(int)}の行数ごとに実行する。<br>
+ * コネクションが自動コミットの場合はテーブルごとに1つのトランザクションで削除・登録し、
+ * 既にトランザクションに参加している場合はトランザクションの制御を行わない。<br>
+ * {@link #setDisableConstraints(boolean)}を指定した場合、H2では登録中の参照整合性のチェックを無効にする。
+ * 
+ * @author m_nori
+ */
+public class DataSetWriter {
+
+	private static final Logger logger = Logger.getLogger(DataSetWriter.class);
+
+	/** バッチで実行する行数のデフォルト値。 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	private final DataSource dataSource;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private boolean disableConstraints;
+
+	/**
+	 * DataSetWriterを生成する。
+	 * 
+	 * @param dataSource
+	 *            登録先のデータソース
+	 */
+	public DataSetWriter(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * データを登録する。
+	 * 
+	 * @param dataSet
+	 *            登録するデータ
+	 * @throws SQLException
+	 *             登録に失敗した場合
+	 */
+	public void write(DataSet dataSet) throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			boolean constraintsDisabled = disableConstraints && disableConstraints(connection);
+			try {
+				boolean autoCommit = connection.getAutoCommit();
+				if (autoCommit) {
+					connection.setAutoCommit(false);
+				}
+				try {
+					List<DataTable> tables = dataSet.getTables();
+					for (int i = tables.size() - 1; i >= 0; i--) {
+						delete(connection, tables.get(i));
+						commit(connection, autoCommit);
+					}
+					for (DataTable table : tables) {
+						insert(connection, table);
+						commit(connection, autoCommit);
+					}
+				} catch (SQLException e) {
+					rollback(connection, autoCommit);
+					throw e;
+				} catch (RuntimeException e) {
+					rollback(connection, autoCommit);
+					throw e;
+				} finally {
+					if (autoCommit) {
+						connection.setAutoCommit(true);
+					}
+				}
+			} finally {
+				if (constraintsDisabled) {
+					execute(connection, "SET REFERENTIAL_INTEGRITY TRUE");
+				}
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * バッチで実行する行数を設定する。
+	 * 
+	 * @param batchSize
+	 *            バッチで実行する行数
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize:" + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * 登録中の参照整合性のチェックを無効にするかどうかを設定する。
+	 * <p>
+	 * H2以外のデータベースでは無視される。
+	 * 
+	 * @param disableConstraints
+	 *            参照整合性のチェックを無効にするかどうか
+	 */
+	public void setDisableConstraints(boolean disableConstraints) {
+		this.disableConstraints = disableConstraints;
+	}
+
+	/**
+	 * 参照整合性のチェックを無効にする。
+	 * 
+	 * @param connection
+	 *            コネクション
+	 * @return 無効にした場合は<code>true</code>
+	 * @throws SQLException
+	 *             無効化に失敗した場合
+	 */
+	protected boolean disableConstraints(Connection connection) throws SQLException {
+		String productName = connection.getMetaData().getDatabaseProductName();
+		if (!"H2".equals(productName)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("disableConstraints is not supported:" + productName);
+			}
+			return false;
+		}
+		execute(connection, "SET REFERENTIAL_INTEGRITY FALSE");
+		return true;
+	}
+
+	private static void commit(Connection connection, boolean autoCommit) throws SQLException {
+		if (autoCommit) {
+			connection.commit();
+		}
+	}
+
+	private static void rollback(Connection connection, boolean autoCommit) {
+		if (!autoCommit) {
+			return;
+		}
+		try {
+			connection.rollback();
+		} catch (SQLException e) {
+			logger.warn("failed to rollback", e);
+		}
+	}
+
+	private static void execute(Connection connection, String sql) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(sql);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * テーブルの既存の行を削除する。
+	 * 
+	 * @param connection
+	 *            コネクション
+	 * @param table
+	 *            対象のテーブル
+	 * @throws SQLException
+	 *             削除に失敗した場合
+	 */
+	protected void delete(Connection connection, DataTable table) throws SQLException {
+		execute(connection, "DELETE FROM " + table.getTableName());
+	}
+
+	/**
+	 * テーブルに行をバッチで登録する。
+	 * 
+	 * @param connection
+	 *            コネクション
+	 * @param table
+	 *            対象のテーブル
+	 * @throws SQLException
+	 *             登録に失敗した場合
+	 */
+	protected void insert(Connection connection, DataTable table) throws SQLException {
+		if (logger.isDebugEnabled()) {
+			logger.debug("insert " + table);
+		}
+		int[] sqlTypes = getSqlTypes(connection, table);
+		PreparedStatement statement = connection.prepareStatement(createInsertSql(table));
+		try {
+			int count = 0;
+			for (Object[] row : table.getRows()) {
+				bind(statement, row, sqlTypes);
+				statement.addBatch();
+				if (++count % batchSize == 0) {
+					statement.executeBatch();
+				}
+			}
+			if (count % batchSize != 0) {
+				statement.executeBatch();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * 行の値をパラメータに設定する。
+	 * 
+	 * @param statement
+	 *            ステートメント
+	 * @param row
+	 *            行の値
+	 * @param sqlTypes
+	 *            列のSQL型
+	 * @throws SQLException
+	 *             設定に失敗した場合
+	 */
+	protected void bind(PreparedStatement statement, Object[] row, int[] sqlTypes)
+	        throws SQLException {
+		for (int i = 0; i < row.length; i++) {
+			if (row[i] == null) {
+				statement.setNull(i + 1, sqlTypes[i]);
+			} else {
+				statement.setObject(i + 1, row[i]);
+			}
+		}
+	}
+
+	/**
+	 * INSERT文を生成する。
+	 * 
+	 * @param table
+	 *            対象のテーブル
+	 * @return INSERT文
+	 */
+	protected String createInsertSql(DataTable table) {
+		StringBuilder columns = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (String columnName : table.getColumnNames()) {
+			if (columns.length() > 0) {
+				columns.append(", ");
+				values.append(", ");
+			}
+			columns.append(columnName);
+			values.append('?');
+		}
+		return "INSERT INTO " + table.getTableName() + " (" + columns + ") VALUES (" + values
+		        + ")";
+	}
+
+	/**
+	 * 列のSQL型を取得する。
+	 * 
+	 * @param connection
+	 *            コネクション
+	 * @param table
+	 *            対象のテーブル
+	 * @return 列のSQL型
+	 * @throws SQLException
+	 *             取得に失敗した場合
+	 */
+	protected int[] getSqlTypes(Connection connection, DataTable table) throws SQLException {
+		List<String> columnNames = table.getColumnNames();
+		StringBuilder sql = new StringBuilder("SELECT ");
+		for (int i = 0; i < columnNames.size(); i++) {
+			sql.append(i > 0 ? ", " : "").append(columnNames.get(i));
+		}
+		sql.append(" FROM ").append(table.getTableName()).append(" WHERE 1 = 0");
+		int[] sqlTypes = new int[columnNames.size()];
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery(sql.toString());
+			try {
+				ResultSetMetaData metaData = resultSet.getMetaData();
+				for (int i = 0; i < sqlTypes.length; i++) {
+					sqlTypes[i] = metaData.getColumnType(i + 1);
+				}
+			} finally {
+				resultSet.close();
+			}
+		} catch (SQLException e) {
+			logger.warn("failed to get column types:" + table.getTableName(), e);
+			for (int i = 0; i < sqlTypes.length; i++) {
+				sqlTypes[i] = Types.VARCHAR;
+			}
+		} finally {
+			statement.close();
+		}
+		return sqlTypes;
+	}
+}
@@ -0,0 +1,93 @@
+package org.seasar.test.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+/**
+ * テーブルに登録するデータ。
+ * <p>
+ * Excelファイルのシートに対応し、列名と行の値を保持する。
+ * 
+ * @author m_nori
+ */
+public class DataTable {
+
+	private final String tableName;
+
+	private final List<String> columnNames;
+
+	private final List<Object[]> rows = new ArrayList<Object[]>();
+
+	/**
+	 * DataTableを生成する。
+	 * 
+	 * @param tableName
+	 *            テーブル名
+	 * @param columnNames
+	 *            列名
+	 */
+	public DataTable(String tableName, List<String> columnNames) {
+		this.tableName = tableName;
+		this.columnNames = Collections.unmodifiableList(new ArrayList<String>(columnNames));
+	}
+
+	/**
+	 * 行を追加する。
+	 * 
+	 * @param values
+	 *            列名の順に並べた値
+	 */
+	public void addRow(Object[] values) {
+		if (values.length != columnNames.size()) {
+			throw new IllegalArgumentException("column size mismatch:" + tableName);
+		}
+		rows.add(values);
+	}
+
+	/**
+	 * テーブル名を返却する。
+	 * 
+	 * @return テーブル名
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * 列名を返却する。
+	 * 
+	 * @return 列名
+	 */
+	public List<String> getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * 行を返却する。
+	 * 
+	 * @return 行
+	 */
+	public List<Object[]> getRows() {
+		return Collections.unmodifiableList(rows);
+	}
+
+	/**
+	 * 行数を返却する。
+	 * 
+	 * @return 行数
+	 */
+	public int getRowSize() {
+		return rows.size();
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+		        .append("tableName", tableName).append("columnNames", columnNames)
+		        .append("rowSize", rows.size()).toString();
+	}
+}
@@ -0,0 +1,123 @@
+package org.seasar.test.data;
+
+import java.io.IOException;
+import java.net.URL;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.ResourceUtil;
+import org.seasar.test.timing.TimingRecorder;
+
+/**
+ * Excelファイル(.xls)のデータをコンテナの{@link DataSource}に登録する。
+ * <p>
+ * パスはクラスパスからのパス、またはテストクラスと同じパッケージからの相対パスで指定する。<br>
+ * 読み込んだ内容は{@link DataSetCache}にキャッシュされ、登録は{@link DataSetWriter}により行う。
+ * 
+ * @author m_nori
+ */
+public class XlsDataLoader {
+
+	private static final Logger logger = Logger.getLogger(XlsDataLoader.class);
+
+	private int batchSize = DataSetWriter.DEFAULT_BATCH_SIZE;
+
+	private boolean disableConstraints;
+
+	/**
+	 * Excelファイルのデータを登録する。
+	 * 
+	 * @param container
+	 *            DataSourceを保持するコンテナ
+	 * @param testClass
+	 *            テスト対象のクラス
+	 * @param paths
+	 *            Excelファイルのパス
+	 * @throws IOException
+	 *             読み込みに失敗した場合
+	 * @throws SQLException
+	 *             登録に失敗した場合
+	 */
+	public void load(S2Container container, Class<?> testClass, String... paths)
+	        throws IOException, SQLException {
+		DataSource dataSource = (DataSource) container.getComponent(DataSource.class);
+		DataSetWriter writer = createWriter(dataSource);
+		for (String path : paths) {
+			URL url = findResource(path, testClass);
+			long start = TimingRecorder.start();
+			DataSet dataSet;
+			try {
+				dataSet = DataSetCache.getInstance().getDataSet(url);
+			} finally {
+				TimingRecorder.stop("xls.read", start);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("write xls:" + url);
+			}
+			start = TimingRecorder.start();
+			try {
+				writer.write(dataSet);
+			} finally {
+				TimingRecorder.stop("xls.write", start);
+			}
+		}
+	}
+
+	/**
+	 * バッチで実行する行数を設定する。
+	 * 
+	 * @param batchSize
+	 *            バッチで実行する行数
+	 * @return このインスタンス
+	 * @see DataSetWriter#setBatchSize(int)
+	 */
+	public XlsDataLoader batchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * 登録中の参照整合性のチェックを無効にする。
+	 * 
+	 * @return このインスタンス
+	 * @see DataSetWriter#setDisableConstraints(boolean)
+	 */
+	public XlsDataLoader disableConstraints() {
+		this.disableConstraints = true;
+		return this;
+	}
+
+	/**
+	 * データを登録するためのWriterを生成する。
+	 * 
+	 * @param dataSource
+	 *            登録先のデータソース
+	 * @return Writer
+	 */
+	protected DataSetWriter createWriter(DataSource dataSource) {
+		DataSetWriter writer = new DataSetWriter(dataSource);
+		writer.setBatchSize(batchSize);
+		writer.setDisableConstraints(disableConstraints);
+		return writer;
+	}
+
+	/**
+	 * Excelファイルを検索する。
+	 * 
+	 * @param path
+	 *            Excelファイルのパス
+	 * @param testClass
+	 *            テスト対象のクラス
+	 * @return ExcelファイルのURL
+	 */
+	protected URL findResource(String path, Class<?> testClass) {
+		URL url = ResourceUtil.getResourceNoException(ResourceUtil.convertPath(path, testClass));
+		if (url == null) {
+			throw new IllegalArgumentException("xls not found:" + path);
+		}
+		return url;
+	}
+}
@@ -0,0 +1,227 @@
+package org.seasar.test.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.seasar.framework.log.Logger;
+
+/**
+ * Excelファイル(.xls)を読み込み、{@link DataSet}を生成する。
+ * <p>
+ * POIのイベントAPIを使用し、ワークブック全体をメモリに展開せずに読み込む。<br>
+ * ワークシートのシート名をテーブル名、1行目を列名とし、2行目以降を値として扱う。グラフシートやマクロシートは読み込まない。<br>
+ * 列名が空のセルより右の列と、すべてのセルが空の行は読み込まない。<br>
+ * 値は文字列、数値({@link BigDecimal})、日付({@link Timestamp})、真偽値のいずれかとなる。
+ * 
+ * @author m_nori
+ */
+public class XlsReader {
+
+	private static final Logger logger = Logger.getLogger(XlsReader.class);
+
+	/**
+	 * Excelファイルを読み込む。
+	 * 
+	 * @param in
+	 *            Excelファイルの入力ストリーム
+	 * @return 読み込んだデータ
+	 * @throws IOException
+	 *             読み込みに失敗した場合
+	 */
+	public DataSet read(InputStream in) throws IOException {
+		SheetListener listener = new SheetListener();
+		FormatTrackingHSSFListener formatListener = new FormatTrackingHSSFListener(listener);
+		listener.formatListener = formatListener;
+		HSSFRequest request = new HSSFRequest();
+		request.addListenerForAllRecords(formatListener);
+		new HSSFEventFactory().processWorkbookEvents(request, new POIFSFileSystem(in));
+		return listener.dataSet;
+	}
+
+	/**
+	 * レコードを受け取り、シートごとの{@link DataTable}を組み立てる。
+	 * 
+	 * @author m_nori
+	 */
+	private static class SheetListener implements HSSFListener {
+
+		FormatTrackingHSSFListener formatListener;
+
+		final DataSet dataSet = new DataSet();
+
+		private final List<String> sheetNames = new ArrayList<String>();
+
+		private SSTRecord sstRecord;
+
+		private int sheetIndex = -1;
+
+		private int depth;
+
+		private boolean inSheet;
+
+		private List<String> columnNames;
+
+		private DataTable table;
+
+		private int currentRow = -1;
+
+		private Object[] rowValues;
+
+		private FormulaRecord pendingFormula;
+
+		public void processRecord(Record record) {
+			switch (record.getSid()) {
+			case BoundSheetRecord.sid:
+				sheetNames.add(((BoundSheetRecord) record).getSheetname());
+				break;
+			case SSTRecord.sid:
+				sstRecord = (SSTRecord) record;
+				break;
+			case BOFRecord.sid:
+				// BoundSheetRecordはグラフシート等を含むすべてのシートの分だけ存在するため、
+				// ワークシート以外も含めたトップレベルのシートごとに位置を進める。
+				// ワークシートに埋め込まれたグラフは入れ子のBOFとなるため数えない。
+				int type = ((BOFRecord) record).getType();
+				depth++;
+				if (depth == 1 && type != BOFRecord.TYPE_WORKBOOK) {
+					sheetIndex++;
+					if (type == BOFRecord.TYPE_WORKSHEET) {
+						inSheet = true;
+						columnNames = new ArrayList<String>();
+						table = null;
+						currentRow = -1;
+						rowValues = null;
+					}
+				}
+				break;
+			case EOFRecord.sid:
+				if (depth == 1 && inSheet) {
+					endRow();
+					endSheet();
+					inSheet = false;
+				}
+				depth--;
+				break;
+			case LabelSSTRecord.sid:
+				LabelSSTRecord label = (LabelSSTRecord) record;
+				cell(label, sstRecord.getString(label.getSSTIndex()).getString());
+				break;
+			case LabelRecord.sid:
+				cell((LabelRecord) record, ((LabelRecord) record).getValue());
+				break;
+			case NumberRecord.sid:
+				NumberRecord number = (NumberRecord) record;
+				cell(number, toValue(number, number.getValue()));
+				break;
+			case BoolErrRecord.sid:
+				BoolErrRecord boolErr = (BoolErrRecord) record;
+				cell(boolErr, boolErr.isBoolean() ? Boolean.valueOf(boolErr.getBooleanValue())
+				        : null);
+				break;
+			case FormulaRecord.sid:
+				FormulaRecord formula = (FormulaRecord) record;
+				if (formula.hasCachedResultString()) {
+					pendingFormula = formula;
+				} else {
+					cell(formula, toValue(formula, formula.getValue()));
+				}
+				break;
+			case StringRecord.sid:
+				if (pendingFormula != null) {
+					cell(pendingFormula, ((StringRecord) record).getString());
+					pendingFormula = null;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		private Object toValue(CellValueRecordInterface record, double value) {
+			int formatIndex = formatListener.getFormatIndex(record);
+			String formatString = formatListener.getFormatString(record);
+			if (HSSFDateUtil.isADateFormat(formatIndex, formatString)
+			        && HSSFDateUtil.isValidExcelDate(value)) {
+				return new Timestamp(HSSFDateUtil.getJavaDate(value).getTime());
+			}
+			return new BigDecimal(Double.toString(value)).stripTrailingZeros();
+		}
+
+		private void cell(CellValueRecordInterface record, Object value) {
+			if (!inSheet || depth != 1) {
+				return;
+			}
+			int row = record.getRow();
+			int column = record.getColumn();
+			if (row == 0) {
+				if (column == columnNames.size() && value != null
+				        && value.toString().trim().length() > 0) {
+					columnNames.add(value.toString().trim());
+				}
+				return;
+			}
+			if (table == null) {
+				table = new DataTable(sheetNames.get(sheetIndex), columnNames);
+			}
+			if (row != currentRow) {
+				endRow();
+				currentRow = row;
+				rowValues = new Object[columnNames.size()];
+			}
+			if (column < rowValues.length) {
+				if (value instanceof String && ((String) value).length() == 0) {
+					value = null;
+				}
+				rowValues[column] = value;
+			}
+		}
+
+		private void endRow() {
+			if (rowValues == null) {
+				return;
+			}
+			for (Object value : rowValues) {
+				if (value != null) {
+					table.addRow(rowValues);
+					break;
+				}
+			}
+			rowValues = null;
+		}
+
+		private void endSheet() {
+			if (columnNames.isEmpty()) {
+				return;
+			}
+			if (table == null) {
+				table = new DataTable(sheetNames.get(sheetIndex), columnNames);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("read sheet:" + table);
+			}
+			dataSet.addTable(table);
+		}
+	}
+}
@@ -3,13 +3,20 @@ package org.seasar.test.rule;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.seasar.framework.container.ComponentDef;
 import org.seasar.framework.container.S2Container;
 import org.seasar.framework.log.Logger;
 import org.seasar.framework.util.FieldUtil;
 import org.seasar.framework.util.StringUtil;
+import org.seasar.test.annotation.LazyInjection;
+import org.seasar.test.context.ComponentIndex;
 import org.seasar.test.context.TestContext;
+import org.seasar.test.timing.FlightRecorderEvents;
+import org.seasar.test.timing.TimingRecorder;
 
 /**
  * テストインスタンスのインジェクションを行うためのルール。
@@ -20,7 +27,9 @@ public class DependencyInjectionRule extends S2InstanceRule {
 
 	private static final Logger logger = Logger.getLogger(DependencyInjectionRule.class);
 
-	private List<Field> boundFieldsCache;
+	private volatile List<Field> boundFieldsCache;
+
+	private volatile InjectionPlan injectionPlan;
 
 	@Override
 	public void apply(TestContext testContext) throws Exception {
@@ -30,8 +39,21 @@ public class DependencyInjectionRule extends S2InstanceRule {
 		injectDependencies(testContext);
 	}
 
+	/**
+	 * 解決済みのインジェクションの内容を破棄する。
+	 * <p>
+	 * テストクラスの最後のメソッドでコンテナが破棄された場合も、インジェクションの内容から参照が残らないようにする。
+	 */
+	@Override
+	public void afterTestClass() {
+		injectionPlan = null;
+	}
+
 	/**
 	 * インジェクションを行う。
+	 * <p>
+	 * インジェクションの内容はテストクラスとコンテナごとに1度だけ解決し、以降のテストインスタンスでは使い回す。<br>
+	 * テストクラスに{@link LazyInjection}が付与されている場合、インターフェース型のフィールドにはプロキシを設定する。
 	 * 
 	 * @param testContext
 	 *            対象のテストコンテキスト
@@ -39,15 +61,50 @@ public class DependencyInjectionRule extends S2InstanceRule {
 	 *             すべての例外発生時
 	 */
 	protected void injectDependencies(final TestContext testContext) throws Exception {
-		List<Field> boundFields = getBindFields(testContext.getTargetClass());
-		for (Field field : boundFields) {
-			bindField(testContext.getContainer(), testContext.getTestInstance(), field);
+		S2Container container = testContext.getContainer();
+		long start = TimingRecorder.start();
+		try {
+			InjectionPlan plan = injectionPlan;
+			if (plan == null || !plan.isValidFor(container)) {
+				plan = createInjectionPlan(container, testContext.getTargetClass());
+				injectionPlan = plan;
+			}
+			plan.inject(testContext.getTestInstance());
+		} finally {
+			TimingRecorder.stop("injection", start);
+		}
+	}
+
+	/**
+	 * テストクラスに対するインジェクションの内容を解決する。
+	 * 
+	 * @param container
+	 *            コンテナ
+	 * @param testClass
+	 *            テスト対象のクラス
+	 * @return インジェクションの内容
+	 * @throws Exception
+	 *             すべての例外発生時
+	 */
+	protected InjectionPlan createInjectionPlan(S2Container container, Class<?> testClass)
+	        throws Exception {
+		List<InjectionPlan.Binding> bindings = new ArrayList<InjectionPlan.Binding>();
+		boolean lazy = testClass.isAnnotationPresent(LazyInjection.class);
+		for (Field field : getBindFields(testClass)) {
+			if (!isAutoBindable(field)) {
+				continue;
+			}
+			Object key = resolveComponentKey(container, field);
+			if (key != null) {
+				bindings.add(new InjectionPlan.Binding(field, key, lazy));
+			}
 		}
+		return new InjectionPlan(container, bindings);
 	}
 
 	/**
 	 * テスト対象クラスの保持しているフィールドを親クラス階層をたどって取得する。<br>
-	 * 取得結果はキャッシュしておく。
+	 * 取得結果はキャッシュしておく。テストメソッドを並行に実行する場合も、組み立て終えたリストのみを公開する。
 	 * 
 	 * @param testClass
 	 *            テスト対象のクラス
@@ -56,18 +113,16 @@ public class DependencyInjectionRule extends S2InstanceRule {
 	 *             すべての例外発生時
 	 */
 	protected List<Field> getBindFields(Class<?> testClass) throws Exception {
-		if (boundFieldsCache == null) {
-			boundFieldsCache = new ArrayList<Field>();
+		List<Field> fields = boundFieldsCache;
+		if (fields == null) {
+			fields = new ArrayList<Field>();
 			for (Class<?> clazz = testClass; clazz != null; clazz = clazz.getSuperclass()) {
-				Field[] fields = clazz.getDeclaredFields();
-				for (Field field : fields) {
-					if (!boundFieldsCache.contains(field)) {
-						boundFieldsCache.add(field);
-					}
-				}
+				fields.addAll(Arrays.asList(clazz.getDeclaredFields()));
 			}
+			fields = Collections.unmodifiableList(fields);
+			boundFieldsCache = fields;
 		}
-		return boundFieldsCache;
+		return fields;
 	}
 
 	/**
@@ -86,31 +141,52 @@ public class DependencyInjectionRule extends S2InstanceRule {
 			if (FieldUtil.get(field, targetInstance) != null) {
 				return;
 			}
-			String name = normalizeName(field.getName());
-			Object component = null;
-			if (container.hasComponentDef(name)) {
-				Class<?> componentClass = container.getComponentDef(name).getComponentClass();
-				if (componentClass == null) {
-					component = container.getComponent(name);
-					if (component != null) {
-						componentClass = component.getClass();
-					}
-				}
-				if (componentClass != null && field.getType().isAssignableFrom(componentClass)) {
-					if (component == null) {
-						component = container.getComponent(name);
-					}
-				} else {
-					component = null;
-				}
-			}
-			if (component == null && container.hasComponentDef(field.getType())) {
-				component = container.getComponent(field.getType());
-			}
+			Object event = FlightRecorderEvents.begin();
+			Object key = resolveComponentKey(container, field);
+			Object component = key != null ? container.getComponent(key) : null;
 			if (component != null) {
 				FieldUtil.set(field, targetInstance, component);
 			}
+			if (event != null && key != null) {
+				FlightRecorderEvents.commit(event, "injection.field",
+				        new InjectionPlan.Binding(field, key).describe());
+			}
+		}
+	}
+
+	/**
+	 * フィールドにインジェクションするコンポーネントのキーを解決する。
+	 * <p>
+	 * フィールド名と一致し、型が代入可能なコンポーネントが存在する場合はコンポーネント名を、
+	 * それ以外でフィールドの型のコンポーネントが存在する場合は型を返却する。<br>
+	 * コンポーネント定義は{@link ComponentIndex}から取得する。
+	 * 
+	 * @param container
+	 *            コンテナ
+	 * @param field
+	 *            インジェクション対象のフィールド
+	 * @return コンポーネントのキー、インジェクションしない場合は<code>null</code>
+	 */
+	protected Object resolveComponentKey(S2Container container, Field field) {
+		ComponentIndex componentIndex = ComponentIndex.getInstance(container);
+		String name = normalizeName(field.getName());
+		ComponentDef componentDef = componentIndex.getComponentDef(name);
+		if (componentDef != null) {
+			Class<?> componentClass = componentDef.getComponentClass();
+			if (componentClass == null) {
+				Object component = componentDef.getComponent();
+				if (component != null) {
+					componentClass = component.getClass();
+				}
+			}
+			if (componentClass != null && field.getType().isAssignableFrom(componentClass)) {
+				return name;
+			}
+		}
+		if (componentIndex.hasComponentDef(field.getType())) {
+			return field.getType();
 		}
+		return null;
 	}
 
 	/**
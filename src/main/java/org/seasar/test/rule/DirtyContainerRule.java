@@ -1,5 +1,7 @@
 package org.seasar.test.rule;
 
+import java.util.Arrays;
+
 import org.junit.runner.Description;
 import org.seasar.framework.log.Logger;
 import org.seasar.test.annotation.Dirty;
@@ -8,7 +10,10 @@ import org.seasar.test.context.TestContext;
 /**
  * コンテナを初期化するためのルール。
  * <p>
- * 後処理にてコンテナを初期化する。
+ * 後処理にてコンテナを初期化する。<br>
+ * {@link Dirty}にコンポーネントが指定されている場合は、指定したコンポーネントのみを初期化する。<br>
+ * コンテナは並行に実行している他のテストメソッドと共有しているため、
+ * {@link org.seasar.test.annotation.ConcurrentMethods}を付与したテストクラスのメソッドに対しては使用できない。
  * 
  * @see Dirty
  * @author m_nori
@@ -33,31 +38,79 @@ public class DirtyContainerRule extends S2TestRule {
 		DIRTY
 	}
 
+	/**
+	 * 初期化の方法
+	 * 
+	 * @author m_nori
+	 */
+	public enum Reset {
+		/**
+		 * コンテナを破棄し、diconファイルから再読み込みする。
+		 */
+		RELOAD,
+		/**
+		 * diconファイルの再読み込みは行わず、コンポーネントのインスタンスのみを破棄する。
+		 * <p>
+		 * インスタンスは次に取得した際にコンポーネント定義から再生成される。
+		 * {@link org.seasar.framework.container.S2Container#register(Object)}にて直接登録されたインスタンスは破棄されない。<br>
+		 * 他のテストクラスが同じコンテナを使用中の場合は、{@link #RELOAD}と同様にコンテナを破棄する。
+		 */
+		INSTANCES
+	}
+
 	private Mode mode;
 
+	private Reset reset;
+
 	public DirtyContainerRule() {
 		this(Mode.ALL);
 	}
 
 	public DirtyContainerRule(Mode mode) {
+		this(mode, Reset.RELOAD);
+	}
+
+	public DirtyContainerRule(Mode mode, Reset reset) {
 		super();
 		this.mode = mode;
+		this.reset = reset;
+	}
+
+	/**
+	 * テストメソッドを並行に実行している場合は例外をスローする。
+	 */
+	@Override
+	protected void before(Description description, TestContext testContext) throws Throwable {
+		if (testContext.isConcurrent()) {
+			throw new IllegalStateException("DirtyContainerRule cannot be used with @ConcurrentMethods:"
+			        + description.getDisplayName());
+		}
 	}
 
 	@Override
 	protected void after(Description description, TestContext testContext) throws Throwable {
-		if (mode == Mode.DIRTY) {
-			Dirty dirty = description.getAnnotation(Dirty.class);
-			if (dirty == null) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Target method is not Dirty!");
-				}
-				return;
+		Dirty dirty = description.getAnnotation(Dirty.class);
+		if (mode == Mode.DIRTY && dirty == null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Target method is not Dirty!");
 			}
+			return;
+		}
+		if (dirty != null && (dirty.components().length > 0 || dirty.types().length > 0)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Reset Components! components:" + Arrays.toString(dirty.components())
+				        + " types:" + Arrays.toString(dirty.types()));
+			}
+			testContext.resetComponents(dirty.components(), dirty.types());
+			return;
 		}
 		if (logger.isDebugEnabled()) {
-			logger.debug("Reset Container!");
+			logger.debug("Reset Container! reset:" + reset);
+		}
+		if (reset == Reset.INSTANCES) {
+			testContext.resetInstances();
+		} else {
+			testContext.resetContainer();
 		}
-		testContext.resetContainer();
 	}
 }
@@ -0,0 +1,193 @@
+package org.seasar.test.rule;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.util.FieldUtil;
+import org.seasar.test.context.PrototypePool;
+import org.seasar.test.timing.FlightRecorderEvents;
+
+/**
+ * テストクラスに対するインジェクションの内容を事前に解決したもの。
+ * <p>
+ * フィールドごとにインジェクションするコンポーネントのキーを保持し、
+ * テストインスタンスに対してはフィールドへの設定のみを行う。<br>
+ * 解決に使用したコンテナに対してのみ有効である。
+ *
+ * @author m_nori
+ */
+public class InjectionPlan {
+
+	private final S2Container container;
+
+	private final List<Binding> bindings;
+
+	private final boolean pooling;
+
+	/**
+	 * InjectionPlanを生成する。
+	 *
+	 * @param container
+	 *            解決に使用したコンテナ
+	 * @param bindings
+	 *            フィールドとコンポーネントのキー
+	 */
+	public InjectionPlan(S2Container container, List<Binding> bindings) {
+		this.container = container;
+		this.bindings = Collections.unmodifiableList(new ArrayList<Binding>(bindings));
+		boolean pooling = false;
+		PrototypePool pool = PrototypePool.getInstance(container);
+		for (Binding binding : bindings) {
+			pooling |= !binding.lazy && pool.isPoolable(binding.key);
+		}
+		this.pooling = pooling;
+	}
+
+	/**
+	 * 対象のコンテナに対して有効かどうかを返却する。
+	 *
+	 * @param target
+	 *            対象のコンテナ
+	 * @return 有効かどうか
+	 */
+	public boolean isValidFor(S2Container target) {
+		return container == target;
+	}
+
+	/**
+	 * テストインスタンスに対してインジェクションを行う。
+	 * <p>
+	 * 既に値が設定されているフィールドには設定しない。<br>
+	 * 遅延インジェクションを行うフィールドにはプロキシを設定する。<br>
+	 * 再利用の対象となるprototypeのコンポーネントは{@link PrototypePool}から取得する。
+	 *
+	 * @param targetInstance
+	 *            インジェクション対象のインスタンス
+	 */
+	public void inject(Object targetInstance) {
+		PrototypePool pool = pooling ? PrototypePool.getInstance(container) : null;
+		for (int i = 0; i < bindings.size(); i++) {
+			Binding binding = bindings.get(i);
+			if (FieldUtil.get(binding.field, targetInstance) != null) {
+				continue;
+			}
+			Object event = FlightRecorderEvents.begin();
+			Object component;
+			if (binding.lazy) {
+				component = LazyComponentHandler.createProxy(container, binding.key, binding.field
+				        .getType());
+			} else if (pool != null) {
+				component = pool.lease(binding.key, targetInstance);
+			} else {
+				component = container.getComponent(binding.key);
+			}
+			if (component != null) {
+				FieldUtil.set(binding.field, targetInstance, component);
+			}
+			if (event != null) {
+				FlightRecorderEvents.commit(event, "injection.field", binding.describe());
+			}
+		}
+	}
+
+	/**
+	 * フィールドとコンポーネントのキーを返却する。
+	 *
+	 * @return フィールドとコンポーネントのキー
+	 */
+	public List<Binding> getBindings() {
+		return bindings;
+	}
+
+	/**
+	 * フィールドとインジェクションするコンポーネントのキー。
+	 *
+	 * @author m_nori
+	 */
+	public static class Binding {
+		private final Field field;
+
+		private final Object key;
+
+		private final boolean lazy;
+
+		/**
+		 * Bindingを生成する。
+		 * <p>
+		 * フィールドはアクセス可能に設定される。
+		 *
+		 * @param field
+		 *            インジェクション対象のフィールド
+		 * @param key
+		 *            コンポーネント名または型
+		 */
+		public Binding(Field field, Object key) {
+			this(field, key, false);
+		}
+
+		/**
+		 * Bindingを生成する。
+		 * <p>
+		 * フィールドはアクセス可能に設定される。<br>
+		 * 遅延インジェクションはフィールドの型がインターフェースの場合のみ有効となる。
+		 * 
+		 * @param field
+		 *            インジェクション対象のフィールド
+		 * @param key
+		 *            コンポーネント名または型
+		 * @param lazy
+		 *            遅延インジェクションを行うかどうか
+		 */
+		public Binding(Field field, Object key, boolean lazy) {
+			field.setAccessible(true);
+			this.field = field;
+			this.key = key;
+			this.lazy = lazy && field.getType().isInterface();
+		}
+
+		/**
+		 * インジェクション対象のフィールドを返却する。
+		 *
+		 * @return インジェクション対象のフィールド
+		 */
+		public Field getField() {
+			return field;
+		}
+
+		/**
+		 * コンポーネント名または型を返却する。
+		 *
+		 * @return コンポーネント名または型
+		 */
+		public Object getKey() {
+			return key;
+		}
+
+		/**
+		 * フィールド名とコンポーネントの解決方法を返却する。
+		 * 
+		 * @return フィールド名、コンポーネント名または型、名前と型のどちらで解決したか
+		 */
+		String describe() {
+			StringBuilder sb = new StringBuilder(field.getName()).append('=');
+			if (key instanceof Class<?>) {
+				sb.append(((Class<?>) key).getName()).append(" (by type");
+			} else {
+				sb.append(key).append(" (by name");
+			}
+			return sb.append(lazy ? ", lazy)" : ")").toString();
+		}
+
+		/**
+		 * 遅延インジェクションを行うかどうかを返却する。
+		 * 
+		 * @return 遅延インジェクションを行うかどうか
+		 */
+		public boolean isLazy() {
+			return lazy;
+		}
+	}
+}
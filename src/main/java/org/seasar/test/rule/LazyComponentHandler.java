@@ -0,0 +1,95 @@
+package org.seasar.test.rule;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.seasar.framework.container.S2Container;
+
+/**
+ * コンポーネントの取得を最初のメソッド呼び出しまで遅延させるプロキシ。
+ * <p>
+ * {@link Object}のメソッド(equals、hashCode、toString)はコンポーネントを取得せずにプロキシ自身で処理する。
+ * 
+ * @see org.seasar.test.annotation.LazyInjection
+ * @author m_nori
+ */
+public class LazyComponentHandler implements InvocationHandler {
+
+	private final S2Container container;
+
+	private final Object key;
+
+	private volatile Object component;
+
+	/**
+	 * LazyComponentHandlerを生成する。
+	 * 
+	 * @param container
+	 *            コンテナ
+	 * @param key
+	 *            コンポーネント名または型
+	 */
+	public LazyComponentHandler(S2Container container, Object key) {
+		this.container = container;
+		this.key = key;
+	}
+
+	/**
+	 * コンポーネントのプロキシを生成する。
+	 * 
+	 * @param container
+	 *            コンテナ
+	 * @param key
+	 *            コンポーネント名または型
+	 * @param type
+	 *            プロキシが実装するインターフェース
+	 * @return プロキシ
+	 */
+	public static Object createProxy(S2Container container, Object key, Class<?> type) {
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+		        new LazyComponentHandler(container, key));
+	}
+
+	/**
+	 * コンポーネントを返却する。
+	 * <p>
+	 * 初回の呼び出し時にコンテナから取得する。
+	 * 
+	 * @return コンポーネント
+	 */
+	public Object getComponent() {
+		Object result = component;
+		if (result == null) {
+			synchronized (this) {
+				result = component;
+				if (result == null) {
+					result = container.getComponent(key);
+					component = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			String name = method.getName();
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			} else if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			return "lazy component:" + key;
+		}
+		if (!method.isAccessible()) {
+			method.setAccessible(true);
+		}
+		try {
+			return method.invoke(getComponent(), args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+}
@@ -12,4 +12,12 @@ public abstract class S2InstanceRule {
      */
     public abstract void apply(final TestContext testContext) throws Exception;
 
+    /**
+     * テストクラスの終了時に呼び出される。
+     * <p>
+     * コンテナに関する状態を保持している場合は破棄し、破棄したコンテナが回収されるようにする。
+     */
+    public void afterTestClass() {
+    }
+
 }
@@ -4,6 +4,7 @@ import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.seasar.test.context.TestContext;
+import org.seasar.test.timing.TimingRecorder;
 
 /**
  * S2Testにて管理を行うルール。<br>
@@ -38,9 +39,19 @@ public abstract class S2TestRule implements TestRule {
 		return new Statement() {
 			@Override
 			public void evaluate() throws Throwable {
-				before(description, testContext);
+				long start = TimingRecorder.start();
+				try {
+					before(description, testContext);
+				} finally {
+					TimingRecorder.stop("testRule.before:" + S2TestRule.this.getClass().getSimpleName(), start);
+				}
 				base.evaluate();
-				after(description, testContext);
+				start = TimingRecorder.start();
+				try {
+					after(description, testContext);
+				} finally {
+					TimingRecorder.stop("testRule.after:" + S2TestRule.this.getClass().getSimpleName(), start);
+				}
 			}
 		};
 	}
@@ -0,0 +1,49 @@
+package org.seasar.test.rule;
+
+import javax.sql.DataSource;
+
+import org.seasar.test.context.TestContext;
+import org.seasar.test.data.XlsDataLoader;
+
+/**
+ * テストインスタンスの生成時にExcelファイル(.xls)のデータをデータベースに登録するためのルール。
+ * <p>
+ * 指定したExcelファイルの内容を{@link TestContext#getContainer()}の{@link DataSource}に登録する。
+ * 
+ * @see XlsDataLoader
+ * @author m_nori
+ */
+public class XlsDataInstanceRule extends S2InstanceRule {
+
+	private final XlsDataLoader loader;
+
+	private final String[] paths;
+
+	/**
+	 * XlsDataInstanceRuleを生成する。
+	 * 
+	 * @param paths
+	 *            Excelファイルのパス
+	 */
+	public XlsDataInstanceRule(String... paths) {
+		this(new XlsDataLoader(), paths);
+	}
+
+	/**
+	 * 登録方法を指定してXlsDataInstanceRuleを生成する。
+	 * 
+	 * @param loader
+	 *            登録に使用するLoader
+	 * @param paths
+	 *            Excelファイルのパス
+	 */
+	public XlsDataInstanceRule(XlsDataLoader loader, String... paths) {
+		this.loader = loader;
+		this.paths = paths;
+	}
+
+	@Override
+	public void apply(TestContext testContext) throws Exception {
+		loader.load(testContext.getContainer(), testContext.getTargetClass(), paths);
+	}
+}
@@ -0,0 +1,52 @@
+package org.seasar.test.rule;
+
+import javax.sql.DataSource;
+
+import org.junit.runner.Description;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.data.XlsDataLoader;
+
+/**
+ * Excelファイル(.xls)のデータをデータベースに登録するためのルール。
+ * <p>
+ * 前処理にて、指定したExcelファイルの内容をコンテナの{@link DataSource}に登録する。<br>
+ * テストインスタンスの生成時に登録する場合は{@link XlsDataInstanceRule}を使用する。
+ * 
+ * @see XlsDataLoader
+ * @author m_nori
+ */
+public class XlsDataRule extends S2TestRule {
+
+	private final XlsDataLoader loader;
+
+	private final String[] paths;
+
+	/**
+	 * XlsDataRuleを生成する。
+	 * 
+	 * @param paths
+	 *            Excelファイルのパス
+	 */
+	public XlsDataRule(String... paths) {
+		this(new XlsDataLoader(), paths);
+	}
+
+	/**
+	 * 登録方法を指定してXlsDataRuleを生成する。
+	 * 
+	 * @param loader
+	 *            登録に使用するLoader
+	 * @param paths
+	 *            Excelファイルのパス
+	 */
+	public XlsDataRule(XlsDataLoader loader, String... paths) {
+		super();
+		this.loader = loader;
+		this.paths = paths;
+	}
+
+	@Override
+	protected void before(Description description, TestContext testContext) throws Throwable {
+		loader.load(testContext.getContainer(), testContext.getTargetClass(), paths);
+	}
+}
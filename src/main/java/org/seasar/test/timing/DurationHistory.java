@@ -0,0 +1,142 @@
+package org.seasar.test.timing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.seasar.framework.log.Logger;
+
+/**
+ * テストクラスごとの実行時間の履歴。
+ * <p>
+ * 前回までの実行時間をファイルから読み込み、今回の実行時間で更新して保存する。<br>
+ * 保存先はシステムプロパティ{@value #HISTORY_FILE_PROPERTY}で指定できる(デフォルトは{@value #DEFAULT_HISTORY_FILE})。
+ * 
+ * @author m_nori
+ */
+public class DurationHistory {
+	/** 保存先を指定するシステムプロパティ。 */
+	public static final String HISTORY_FILE_PROPERTY = "s2test.durations.file";
+
+	/** 保存先のデフォルト値。 */
+	public static final String DEFAULT_HISTORY_FILE = "target/s2test-durations.properties";
+
+	private static final Logger logger = Logger.getLogger(DurationHistory.class);
+
+	private final File file;
+
+	private final Map<String, Long> durations = new HashMap<String, Long>();
+
+	private final Map<String, Long> recorded = new HashMap<String, Long>();
+
+	/**
+	 * システムプロパティで指定されたファイルを使用するDurationHistoryを生成する。
+	 */
+	public DurationHistory() {
+		this(new File(System.getProperty(HISTORY_FILE_PROPERTY, DEFAULT_HISTORY_FILE)));
+	}
+
+	/**
+	 * DurationHistoryを生成する。
+	 * 
+	 * @param file
+	 *            保存先のファイル
+	 */
+	public DurationHistory(File file) {
+		this.file = file;
+		for (Map.Entry<Object, Object> entry : load().entrySet()) {
+			try {
+				durations.put((String) entry.getKey(), Long.valueOf((String) entry.getValue()));
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * テストクラスの前回の実行時間を返却する。
+	 * 
+	 * @param className
+	 *            テストクラス名
+	 * @return 実行時間(ミリ秒)、記録がない場合は<code>null</code>
+	 */
+	public synchronized Long getDuration(String className) {
+		return durations.get(className);
+	}
+
+	/**
+	 * テストクラスの実行時間を記録する。
+	 * 
+	 * @param className
+	 *            テストクラス名
+	 * @param millis
+	 *            実行時間(ミリ秒)
+	 */
+	public synchronized void record(String className, long millis) {
+		recorded.put(className, millis);
+	}
+
+	/**
+	 * 記録した実行時間をファイルに保存する。
+	 * <p>
+	 * 複数のJVMから同じファイルに保存できるよう、保存直前のファイルの内容に今回の記録を上書きして保存する。
+	 */
+	public synchronized void save() {
+		if (recorded.isEmpty()) {
+			return;
+		}
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists() && !dir.mkdirs()) {
+			logger.warn("failed to create directory:" + dir);
+			return;
+		}
+		Properties properties = load();
+		for (Map.Entry<String, Long> entry : recorded.entrySet()) {
+			properties.setProperty(entry.getKey(), entry.getValue().toString());
+		}
+		try {
+			File temp = new File(file.getPath() + "." + System.nanoTime() + ".tmp");
+			OutputStream out = new FileOutputStream(temp);
+			try {
+				properties.store(out, "s2test class durations (ms)");
+			} finally {
+				out.close();
+			}
+			if (!temp.renameTo(file)) {
+				file.delete();
+				if (!temp.renameTo(file)) {
+					temp.delete();
+					logger.warn("failed to save durations:" + file);
+					return;
+				}
+			}
+			durations.putAll(recorded);
+			recorded.clear();
+		} catch (IOException e) {
+			logger.warn("failed to save durations:" + file, e);
+		}
+	}
+
+	private Properties load() {
+		Properties properties = new Properties();
+		if (file.exists()) {
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					properties.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				logger.warn("failed to load durations:" + file, e);
+			}
+		}
+		return properties;
+	}
+}
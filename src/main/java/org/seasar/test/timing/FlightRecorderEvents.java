@@ -0,0 +1,243 @@
+package org.seasar.test.timing;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.seasar.framework.log.Logger;
+
+/**
+ * テストのライフサイクルをJDK Flight Recorderのイベントとして記録する。
+ * <p>
+ * JFRを使用できるJDKでレコーディングが実行されている場合のみ、<code>org.seasar.test.Phase</code>イベントを記録する。<br>
+ * イベントはフェーズ名、詳細、テストクラス、テストメソッドを持ち、GCやクラスロード等のイベントと並べて確認できる。<br>
+ * JFRのAPIはリフレクションで使用するため、JFRを持たないJDKでも動作する。<br>
+ * レコーディングが実行されていない場合の処理はフラグの参照のみである。<br>
+ * システムプロパティ{@value #ENABLED_PROPERTY}に<code>false</code>を指定した場合は記録しない。
+ * 
+ * <pre>
+ * Object event = FlightRecorderEvents.begin();
+ * ...
+ * FlightRecorderEvents.commit(event, &quot;injection.field&quot;, &quot;fooService&quot;);
+ * </pre>
+ * 
+ * @author m_nori
+ */
+public class FlightRecorderEvents {
+	/** 記録を行うかどうかを指定するシステムプロパティ。 */
+	public static final String ENABLED_PROPERTY = "s2test.jfr";
+
+	/** イベント名。 */
+	public static final String EVENT_NAME = "org.seasar.test.Phase";
+
+	private static final Logger logger = Logger.getLogger(FlightRecorderEvents.class);
+
+	private static final String[] FIELD_NAMES = { "phase", "detail", "testClass", "testMethod" };
+
+	private static final String[] FIELD_LABELS = { "Phase", "Detail", "Test Class", "Test Method" };
+
+	private static volatile boolean recording;
+
+	private static Object eventFactory;
+
+	private static Method newEvent;
+
+	private static Method begin;
+
+	private static Method end;
+
+	private static Method set;
+
+	private static Method shouldCommit;
+
+	private static Method commit;
+
+	private static Method isInitialized;
+
+	private static Method getFlightRecorder;
+
+	private static Method getRecordings;
+
+	private static Method getState;
+
+	static {
+		if (!"false".equals(System.getProperty(ENABLED_PROPERTY))) {
+			try {
+				initialize();
+			} catch (Throwable t) {
+				eventFactory = null;
+				if (logger.isDebugEnabled()) {
+					logger.debug("JDK Flight Recorder is not available: " + t);
+				}
+			}
+		}
+	}
+
+	private FlightRecorderEvents() {
+	}
+
+	/**
+	 * JFRのレコーディングが実行されているかどうかを返却する。
+	 * 
+	 * @return レコーディングが実行されているかどうか
+	 */
+	public static boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * イベントを開始する。
+	 * 
+	 * @return イベント、レコーディングが実行されていない場合は<code>null</code>
+	 */
+	public static Object begin() {
+		if (!recording) {
+			return null;
+		}
+		try {
+			Object event = newEvent.invoke(eventFactory);
+			begin.invoke(event);
+			return event;
+		} catch (Exception e) {
+			logger.warn("failed to begin event", e);
+			return null;
+		}
+	}
+
+	/**
+	 * イベントを終了し、現在のテストのフェーズとして記録する。
+	 * 
+	 * @param event
+	 *            {@link #begin()}にて取得したイベント
+	 * @param phase
+	 *            フェーズ名
+	 * @param detail
+	 *            詳細、ない場合は<code>null</code>
+	 */
+	public static void commit(Object event, String phase, String detail) {
+		if (event == null) {
+			return;
+		}
+		try {
+			end.invoke(event);
+			if (!Boolean.TRUE.equals(shouldCommit.invoke(event))) {
+				return;
+			}
+			String[] test = TimingRecorder.getInstance().getCurrentTest();
+			set.invoke(event, 0, phase);
+			set.invoke(event, 1, detail);
+			set.invoke(event, 2, test[0]);
+			set.invoke(event, 3, test[1]);
+			commit.invoke(event);
+		} catch (Exception e) {
+			logger.warn("failed to commit event:" + phase, e);
+		}
+	}
+
+	/**
+	 * イベントの定義を登録し、レコーディングの状態を監視する。
+	 * 
+	 * @throws Exception
+	 *             JFRを使用できない場合
+	 */
+	private static void initialize() throws Exception {
+		Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+		Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class,
+		        Object.class);
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(annotationElement.newInstance(annotation("jdk.jfr.Name"), EVENT_NAME));
+		annotations.add(annotationElement.newInstance(annotation("jdk.jfr.Label"), "s2test Phase"));
+		annotations.add(annotationElement.newInstance(annotation("jdk.jfr.Category"),
+		        new String[] { "s2test" }));
+		annotations.add(annotationElement.newInstance(annotation("jdk.jfr.StackTrace"),
+		        Boolean.FALSE));
+
+		Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+		Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class,
+		        String.class, List.class);
+		List<Object> fields = new ArrayList<Object>();
+		for (int i = 0; i < FIELD_NAMES.length; i++) {
+			List<Object> fieldAnnotations = new ArrayList<Object>();
+			fieldAnnotations.add(annotationElement.newInstance(annotation("jdk.jfr.Label"),
+			        FIELD_LABELS[i]));
+			fields.add(valueDescriptor.newInstance(String.class, FIELD_NAMES[i], fieldAnnotations));
+		}
+
+		Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+		eventFactory = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null,
+		        annotations, fields);
+		newEvent = eventFactoryClass.getMethod("newEvent");
+		Class<?> eventClass = Class.forName("jdk.jfr.Event");
+		begin = eventClass.getMethod("begin");
+		end = eventClass.getMethod("end");
+		set = eventClass.getMethod("set", int.class, Object.class);
+		shouldCommit = eventClass.getMethod("shouldCommit");
+		commit = eventClass.getMethod("commit");
+
+		Class<?> flightRecorderClass = Class.forName("jdk.jfr.FlightRecorder");
+		isInitialized = flightRecorderClass.getMethod("isInitialized");
+		getFlightRecorder = flightRecorderClass.getMethod("getFlightRecorder");
+		getRecordings = flightRecorderClass.getMethod("getRecordings");
+		getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+		Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+		Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(),
+		        new Class<?>[] { listenerClass }, new RecordingStateHandler());
+		flightRecorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+		updateRecording();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Annotation> annotation(String className)
+	        throws ClassNotFoundException {
+		return (Class<? extends Annotation>) Class.forName(className);
+	}
+
+	/**
+	 * 実行中のレコーディングがあるかどうかを確認する。
+	 */
+	private static void updateRecording() {
+		boolean running = false;
+		try {
+			if (Boolean.TRUE.equals(isInitialized.invoke(null))) {
+				Object flightRecorder = getFlightRecorder.invoke(null);
+				for (Object recording : (List<?>) getRecordings.invoke(flightRecorder)) {
+					if ("RUNNING".equals(String.valueOf(getState.invoke(recording)))) {
+						running = true;
+						break;
+					}
+				}
+			}
+		} catch (Exception e) {
+			logger.warn("failed to get recording state", e);
+		}
+		if (logger.isDebugEnabled() && recording != running) {
+			logger.debug("JDK Flight Recorder recording:" + running);
+		}
+		recording = running;
+	}
+
+	/**
+	 * レコーディングの状態の変化を受け取るFlightRecorderListenerの実装。
+	 * 
+	 * @author m_nori
+	 */
+	private static class RecordingStateHandler implements InvocationHandler {
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if (method.getDeclaringClass() == Object.class) {
+				String name = method.getName();
+				if ("equals".equals(name)) {
+					return proxy == args[0];
+				} else if ("hashCode".equals(name)) {
+					return System.identityHashCode(proxy);
+				}
+				return "s2test FlightRecorderListener";
+			}
+			updateRecording();
+			return null;
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package org.seasar.test.timing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.seasar.test.context.ContainerCache;
+
+/**
+ * テストのライフサイクルの各フェーズに要した時間を記録する。
+ * <p>
+ * システムプロパティ{@value #ENABLED_PROPERTY}に<code>true</code>を指定した場合、
+ * または{@link TimingReportListener}が登録された場合に記録を行う。<br>
+ * 記録はテストクラスとテストメソッドごとに集計される。<br>
+ * JDK Flight Recorderのレコーディングが実行されている場合は、各フェーズを{@link FlightRecorderEvents}のイベントとしても記録する。
+ * 
+ * <pre>
+ * long start = TimingRecorder.start();
+ * try {
+ *     ...
+ * } finally {
+ *     TimingRecorder.stop(&quot;container.create&quot;, start);
+ * }
+ * </pre>
+ * 
+ * @author m_nori
+ */
+public class TimingRecorder {
+	/** 記録を有効にするシステムプロパティ。 */
+	public static final String ENABLED_PROPERTY = "s2test.timing";
+
+	private static final TimingRecorder instance = new TimingRecorder(
+	        Boolean.getBoolean(ENABLED_PROPERTY));
+
+	private static final String CLASS_SCOPE = "";
+
+	private volatile boolean enabled;
+
+	private final ThreadLocal<String[]> currentTest = new ThreadLocal<String[]>() {
+		@Override
+		protected String[] initialValue() {
+			return new String[] { "(unknown)", CLASS_SCOPE };
+		}
+	};
+
+	private final ThreadLocal<List<Object[]>> pendingEvents = new ThreadLocal<List<Object[]>>() {
+		@Override
+		protected List<Object[]> initialValue() {
+			return new ArrayList<Object[]>();
+		}
+	};
+
+	private final Map<String, Map<String, Map<String, Stat>>> stats = new LinkedHashMap<String, Map<String, Map<String, Stat>>>();
+
+	/**
+	 * TimingRecorderを生成する。
+	 * 
+	 * @param enabled
+	 *            記録を行うかどうか
+	 */
+	public TimingRecorder(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * JVM全体で共有するTimingRecorderを返却する。
+	 * 
+	 * @return TimingRecorder
+	 */
+	public static TimingRecorder getInstance() {
+		return instance;
+	}
+
+	/**
+	 * 計測を開始する。
+	 * 
+	 * @return 開始時刻、記録が無効でJFRのレコーディングも実行されていない場合は<code>0</code>
+	 */
+	public static long start() {
+		if (FlightRecorderEvents.isRecording()) {
+			long start = System.nanoTime();
+			instance.pendingEvents.get().add(new Object[] { start, FlightRecorderEvents.begin() });
+			return start;
+		}
+		return instance.enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * 計測を終了し、現在のテストのフェーズとして記録する。
+	 * 
+	 * @param phase
+	 *            フェーズ名
+	 * @param start
+	 *            {@link #start()}にて取得した開始時刻
+	 */
+	public static void stop(String phase, long start) {
+		if (start != 0L) {
+			if (instance.enabled) {
+				instance.record(phase, System.nanoTime() - start);
+			}
+			Object event = instance.removeEvent(start);
+			if (event != null) {
+				int index = phase.indexOf(':');
+				if (index < 0) {
+					FlightRecorderEvents.commit(event, phase, null);
+				} else {
+					FlightRecorderEvents.commit(event, phase.substring(0, index),
+					        phase.substring(index + 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 開始時刻に対応するJFRのイベントを取り除く。
+	 * <p>
+	 * 例外等により終了されなかった内側のイベントも合わせて取り除く。
+	 * 
+	 * @param start
+	 *            開始時刻
+	 * @return イベント、存在しない場合は<code>null</code>
+	 */
+	private Object removeEvent(long start) {
+		List<Object[]> events = pendingEvents.get();
+		for (int i = events.size() - 1; i >= 0; i--) {
+			Object[] pending = events.get(i);
+			if (((Long) pending[0]).longValue() == start) {
+				events.subList(i, events.size()).clear();
+				return pending[1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 記録を行うかどうかを返却する。
+	 * 
+	 * @return 記録を行うかどうか
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 記録を行うかどうかを設定する。
+	 * 
+	 * @param enabled
+	 *            記録を行うかどうか
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * 現在のスレッドで実行しているテストクラスを設定する。
+	 * 
+	 * @param testClass
+	 *            テストクラス
+	 */
+	public void setCurrentClass(Class<?> testClass) {
+		String[] test = currentTest.get();
+		test[0] = testClass.getName();
+		test[1] = CLASS_SCOPE;
+	}
+
+	/**
+	 * 現在のスレッドで実行しているテストメソッドを設定する。
+	 * 
+	 * @param methodName
+	 *            テストメソッド名、クラス単位の処理の場合は<code>null</code>
+	 */
+	public void setCurrentMethod(String methodName) {
+		currentTest.get()[1] = methodName == null ? CLASS_SCOPE : methodName;
+	}
+
+	/**
+	 * 現在のスレッドで実行しているテストクラスとテストメソッドを返却する。
+	 * 
+	 * @return テストクラス名とテストメソッド名
+	 */
+	String[] getCurrentTest() {
+		return currentTest.get();
+	}
+
+	/**
+	 * 現在のテストのフェーズに要した時間を記録する。
+	 * 
+	 * @param phase
+	 *            フェーズ名
+	 * @param nanos
+	 *            要した時間(ナノ秒)
+	 */
+	public void record(String phase, long nanos) {
+		String[] test = currentTest.get();
+		synchronized (stats) {
+			Map<String, Map<String, Stat>> methods = stats.get(test[0]);
+			if (methods == null) {
+				methods = new LinkedHashMap<String, Map<String, Stat>>();
+				stats.put(test[0], methods);
+			}
+			Map<String, Stat> phases = methods.get(test[1]);
+			if (phases == null) {
+				phases = new LinkedHashMap<String, Stat>();
+				methods.put(test[1], phases);
+			}
+			Stat stat = phases.get(phase);
+			if (stat == null) {
+				stat = new Stat();
+				phases.put(phase, stat);
+			}
+			stat.add(nanos);
+		}
+	}
+
+	/**
+	 * 記録した内容を破棄する。
+	 */
+	public void clear() {
+		synchronized (stats) {
+			stats.clear();
+		}
+	}
+
+	/**
+	 * 記録した内容をJSON形式で出力する。
+	 * 
+	 * @param out
+	 *            出力先
+	 * @throws IOException
+	 *             出力に失敗した場合
+	 */
+	public void writeJson(Appendable out) throws IOException {
+		ContainerCache cache = ContainerCache.getInstance();
+		out.append("{\n  \"containerCache\": {\"hits\": ").append(
+		        String.valueOf(cache.getHitCount()));
+		out.append(", \"misses\": ").append(String.valueOf(cache.getMissCount()));
+		out.append(", \"size\": ").append(String.valueOf(cache.size())).append("},\n");
+		out.append("  \"classes\": [");
+		synchronized (stats) {
+			boolean firstClass = true;
+			for (Map.Entry<String, Map<String, Map<String, Stat>>> classEntry : stats.entrySet()) {
+				out.append(firstClass ? "\n" : ",\n");
+				firstClass = false;
+				out.append("    {\"name\": ").append(quote(classEntry.getKey()));
+				Map<String, Stat> classPhases = classEntry.getValue().get(CLASS_SCOPE);
+				out.append(", \"phases\": ");
+				writePhases(out, classPhases);
+				out.append(", \"methods\": [");
+				boolean firstMethod = true;
+				for (Map.Entry<String, Map<String, Stat>> methodEntry : classEntry.getValue()
+				        .entrySet()) {
+					if (CLASS_SCOPE.equals(methodEntry.getKey())) {
+						continue;
+					}
+					out.append(firstMethod ? "\n" : ",\n");
+					firstMethod = false;
+					out.append("      {\"name\": ").append(quote(methodEntry.getKey()));
+					out.append(", \"phases\": ");
+					writePhases(out, methodEntry.getValue());
+					out.append("}");
+				}
+				out.append(firstMethod ? "]}" : "\n    ]}");
+			}
+			out.append(firstClass ? "]\n}\n" : "\n  ]\n}\n");
+		}
+	}
+
+	private void writePhases(Appendable out, Map<String, Stat> phases) throws IOException {
+		out.append("{");
+		if (phases != null) {
+			boolean first = true;
+			for (Map.Entry<String, Stat> entry : phases.entrySet()) {
+				if (!first) {
+					out.append(", ");
+				}
+				first = false;
+				Stat stat = entry.getValue();
+				out.append(quote(entry.getKey())).append(": {\"count\": ")
+				        .append(String.valueOf(stat.count)).append(", \"totalMillis\": ")
+				        .append(toMillis(stat.totalNanos)).append(", \"maxMillis\": ")
+				        .append(toMillis(stat.maxNanos)).append("}");
+			}
+		}
+		out.append("}");
+	}
+
+	private static String toMillis(long nanos) {
+		return String.valueOf(nanos / 1000L / 1000.0);
+	}
+
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * フェーズごとの集計値。
+	 * 
+	 * @author m_nori
+	 */
+	private static class Stat {
+		int count;
+
+		long totalNanos;
+
+		long maxNanos;
+
+		void add(long nanos) {
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.seasar.test.timing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+import org.seasar.framework.log.Logger;
+
+/**
+ * テスト実行終了時に{@link TimingRecorder}の記録をJSON形式で出力するRunListener。
+ * <p>
+ * 出力先はシステムプロパティ{@value #REPORT_FILE_PROPERTY}で指定できる(デフォルトは{@value #DEFAULT_REPORT_FILE})。<br>
+ * 出力先の{@value #PID_PLACEHOLDER}はプロセスIDに置き換えるため、Surefireのforkごとに別のファイルに出力される。<br>
+ * Surefireでは以下のように指定する。
+ * 
+ * <pre>
+ * &lt;properties&gt;
+ *   &lt;property&gt;
+ *     &lt;name&gt;listener&lt;/name&gt;
+ *     &lt;value&gt;org.seasar.test.timing.TimingReportListener&lt;/value&gt;
+ *   &lt;/property&gt;
+ * &lt;/properties&gt;
+ * </pre>
+ * 
+ * @author m_nori
+ */
+public class TimingReportListener extends RunListener {
+	/** 出力先を指定するシステムプロパティ。 */
+	public static final String REPORT_FILE_PROPERTY = "s2test.timing.file";
+
+	/** 出力先のデフォルト値。 */
+	public static final String DEFAULT_REPORT_FILE = "target/s2test-timing-{pid}.json";
+
+	/** 出力先に指定するとプロセスIDに置き換えられる文字列。 */
+	public static final String PID_PLACEHOLDER = "{pid}";
+
+	private static final Logger logger = Logger.getLogger(TimingReportListener.class);
+
+	/**
+	 * TimingReportListenerを生成し、{@link TimingRecorder}の記録を有効にする。
+	 */
+	public TimingReportListener() {
+		TimingRecorder.getInstance().setEnabled(true);
+	}
+
+	@Override
+	public void testRunFinished(Result result) throws Exception {
+		File file = getReportFile();
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists() && !dir.mkdirs()) {
+			logger.warn("failed to create directory:" + dir);
+			return;
+		}
+		try {
+			File temp = new File(file.getPath() + "." + System.nanoTime() + ".tmp");
+			Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+			try {
+				TimingRecorder.getInstance().writeJson(writer);
+			} finally {
+				writer.close();
+			}
+			if (!temp.renameTo(file)) {
+				file.delete();
+				if (!temp.renameTo(file)) {
+					temp.delete();
+					logger.warn("failed to write timing report:" + file);
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("failed to write timing report:" + file, e);
+		}
+	}
+
+	/**
+	 * 出力先のファイルを返却する。
+	 * 
+	 * @return 出力先のファイル
+	 */
+	protected File getReportFile() {
+		String path = System.getProperty(REPORT_FILE_PROPERTY, DEFAULT_REPORT_FILE);
+		return new File(path.replace(PID_PLACEHOLDER, getProcessId()));
+	}
+
+	/**
+	 * プロセスIDを返却する。
+	 * 
+	 * @return プロセスID、取得できない場合は起動時刻
+	 */
+	private static String getProcessId() {
+		RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+		String name = runtime.getName();
+		int index = name.indexOf('@');
+		return index > 0 ? name.substring(0, index) : String.valueOf(runtime.getStartTime());
+	}
+}
@@ -0,0 +1,5 @@
+package example.logic;
+
+interface HiddenLogic {
+	String execute();
+}
@@ -0,0 +1,7 @@
+package example.logic;
+
+public class HiddenLogicImpl implements HiddenLogic {
+	public String execute() {
+		return "hidden";
+	}
+}
@@ -0,0 +1,86 @@
+package org.seasar.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.Statement;
+import org.seasar.test.annotation.RootDicon;
+import org.seasar.test.context.ContainerCache;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.rule.S2TestRule;
+
+/**
+ * JUnit 4.12以降で追加されたメソッドへの{@link Rule}の付与を確認する。
+ */
+public class S2JUnit4ClassRunnerRuleMethodTest {
+
+	static final List<String> applied = new ArrayList<String>();
+
+	public static class RecordingRule extends S2TestRule {
+		@Override
+		protected void before(Description description, TestContext testContext) {
+			applied.add(testContext != null ? "field" : "field without context");
+		}
+	}
+
+	@RunWith(S2JUnit4ClassRunner.class)
+	@RootDicon(path = "org/seasar/test/S2JUnit4ClassRunnerTest.dicon")
+	public static class RuleMethodTest {
+		@Rule
+		public RecordingRule recordingRule = new RecordingRule();
+
+		@Rule
+		public TestRule methodRule() {
+			return new TestRule() {
+				public Statement apply(final Statement base, Description description) {
+					return new Statement() {
+						@Override
+						public void evaluate() throws Throwable {
+							applied.add("method");
+							base.evaluate();
+						}
+					};
+				}
+			};
+		}
+
+		@Test
+		public void test() {
+		}
+	}
+
+	private ClassLoader original;
+
+	@Before
+	public void before() {
+		original = Thread.currentThread().getContextClassLoader();
+		applied.clear();
+	}
+
+	@After
+	public void after() {
+		Thread.currentThread().setContextClassLoader(original);
+		ContainerCache.getInstance().clear();
+	}
+
+	@Test
+	public void メソッドに付与したRuleとフィールドに付与したRuleが適用される() {
+		Result result = JUnitCore.runClasses(RuleMethodTest.class);
+		assertThat(result.getFailures().toString(), result.wasSuccessful(), is(true));
+		assertThat(applied.size(), is(2));
+		assertThat(applied.containsAll(Arrays.asList("method", "field")), is(true));
+	}
+}
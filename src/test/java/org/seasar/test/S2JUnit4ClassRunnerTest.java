@@ -0,0 +1,166 @@
+package org.seasar.test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.seasar.framework.container.S2Container;
+import org.seasar.test.annotation.ConcurrentMethods;
+import org.seasar.test.annotation.Poolable;
+import org.seasar.test.annotation.RootDicon;
+import org.seasar.test.context.ContainerCache;
+import org.seasar.test.context.PrototypePool;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.rule.DirtyContainerRule;
+import org.seasar.test.rule.S2TestRule;
+
+public class S2JUnit4ClassRunnerTest {
+
+	private static final String ROOT_DICON = "org/seasar/test/S2JUnit4ClassRunnerTest.dicon";
+
+	@Poolable(resetMethod = "")
+	public static class Builder {
+	}
+
+	public static class RecordingRule extends S2TestRule {
+		static final Map<TestContext, Object> contexts =
+		        Collections.synchronizedMap(new IdentityHashMap<TestContext, Object>());
+
+		@Override
+		protected void before(Description description, TestContext testContext) {
+			contexts.put(testContext, testContext.getTestInstance());
+		}
+	}
+
+	@RunWith(S2JUnit4ClassRunner.class)
+	@RootDicon(path = ROOT_DICON)
+	@ConcurrentMethods(3)
+	public static class ConcurrentTest {
+		static CountDownLatch latch;
+
+		static final List<Object> lists = Collections.synchronizedList(new ArrayList<Object>());
+
+		static final List<Object> builders = Collections.synchronizedList(new ArrayList<Object>());
+
+		@Rule
+		public RecordingRule recordingRule = new RecordingRule();
+
+		public List<?> list;
+
+		public Builder builder;
+
+		@Test
+		public void test1() throws Exception {
+			record();
+		}
+
+		@Test
+		public void test2() throws Exception {
+			record();
+		}
+
+		@Test
+		public void test3() throws Exception {
+			record();
+		}
+
+		private void record() throws Exception {
+			lists.add(list);
+			builders.add(builder);
+			latch.countDown();
+			assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+		}
+	}
+
+	@RunWith(S2JUnit4ClassRunner.class)
+	@RootDicon(path = ROOT_DICON)
+	@ConcurrentMethods(2)
+	public static class ConcurrentDirtyTest {
+		@Rule
+		public DirtyContainerRule dirtyContainerRule = new DirtyContainerRule();
+
+		@Test
+		public void test() {
+		}
+	}
+
+	private ClassLoader original;
+
+	@Before
+	public void before() {
+		original = Thread.currentThread().getContextClassLoader();
+		RecordingRule.contexts.clear();
+		ConcurrentTest.latch = new CountDownLatch(3);
+		ConcurrentTest.lists.clear();
+		ConcurrentTest.builders.clear();
+	}
+
+	@After
+	public void after() {
+		Thread.currentThread().setContextClassLoader(original);
+		ContainerCache.getInstance().clear();
+	}
+
+	@Test
+	public void ConcurrentMethodsのテストメソッドがそれぞれのTestContextで並行に実行される() throws Exception {
+		Result result = JUnitCore.runClasses(ConcurrentTest.class);
+		assertThat(result.getFailures().toString(), result.wasSuccessful(), is(true));
+		assertThat(RecordingRule.contexts.size(), is(3));
+		assertThat(countInstances(RecordingRule.contexts.values()), is(3));
+		assertThat(ConcurrentTest.lists.size(), is(3));
+		assertThat(ConcurrentTest.lists.get(0), is(notNullValue()));
+		assertThat(ConcurrentTest.lists.get(1), is(sameInstance(ConcurrentTest.lists.get(0))));
+		assertThat(ConcurrentTest.lists.get(2), is(sameInstance(ConcurrentTest.lists.get(0))));
+		assertThat(ConcurrentTest.builders.size(), is(3));
+		assertThat(countInstances(ConcurrentTest.builders), is(3));
+	}
+
+	@Test
+	public void ConcurrentMethodsのテストメソッド終了時に貸し出したコンポーネントがプールに戻される() throws Exception {
+		Result result = JUnitCore.runClasses(ConcurrentTest.class);
+		assertThat(result.getFailures().toString(), result.wasSuccessful(), is(true));
+		TestContext testContext = RecordingRule.contexts.keySet().iterator().next();
+		S2Container container =
+		        ContainerCache.getInstance().peek(testContext.getContainerKey()).getContainer();
+		Object builder = PrototypePool.getInstance(container).lease("builder", new Object());
+		assertThat(ConcurrentTest.builders, hasItem(builder));
+	}
+
+	@Test
+	public void ConcurrentMethodsのテストクラスでDirtyContainerRuleを使用した場合は失敗する() throws Exception {
+		Result result = JUnitCore.runClasses(ConcurrentDirtyTest.class);
+		assertThat(result.getFailureCount(), is(1));
+		assertThat(result.getFailures().get(0).getMessage(), containsString("ConcurrentMethods"));
+		assertThat(result.getFailures().get(0).getException(),
+		        is(instanceOf(IllegalStateException.class)));
+	}
+
+	private static int countInstances(Collection<?> values) {
+		Map<Object, Boolean> instances = new IdentityHashMap<Object, Boolean>();
+		for (Object value : values) {
+			instances.put(value, Boolean.TRUE);
+		}
+		return instances.size();
+	}
+}
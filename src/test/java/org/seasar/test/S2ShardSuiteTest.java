@@ -0,0 +1,118 @@
+package org.seasar.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.internal.builders.AllDefaultPossibilitiesBuilder;
+import org.junit.runner.Description;
+import org.junit.runners.Suite.SuiteClasses;
+import org.seasar.test.timing.DurationHistory;
+
+public class S2ShardSuiteTest {
+
+	public static class A {
+		@Test
+		public void test() {
+		}
+	}
+
+	public static class B {
+		@Test
+		public void test() {
+		}
+	}
+
+	public static class C {
+		@Test
+		public void test() {
+		}
+	}
+
+	public static class D {
+		@Test
+		public void test() {
+		}
+	}
+
+	@SuiteClasses({ A.class, B.class, C.class, D.class })
+	public static class AllTests {
+	}
+
+	private File durations;
+
+	private File localDurations;
+
+	@Before
+	public void before() throws Exception {
+		durations = createDurations(3000, 1000, 1000, 1000);
+		localDurations = createDurations(1000, 1000, 1000, 3000);
+		System.setProperty(S2ShardSuite.SHARD_COUNT_PROPERTY, "2");
+	}
+
+	@After
+	public void after() {
+		System.clearProperty(DurationHistory.HISTORY_FILE_PROPERTY);
+		System.clearProperty(S2ShardSuite.SHARD_HISTORY_PROPERTY);
+		System.clearProperty(S2ShardSuite.SHARD_COUNT_PROPERTY);
+		System.clearProperty(S2ShardSuite.SHARD_INDEX_PROPERTY);
+		durations.delete();
+		localDurations.delete();
+	}
+
+	@Test
+	public void 実行時間の合計が均等になるように分割される() throws Exception {
+		System.setProperty(S2ShardSuite.SHARD_HISTORY_PROPERTY, durations.getPath());
+		assertThat(createShard(0, durations).size(), is(1));
+		assertThat(createShard(1, localDurations).size(), is(3));
+	}
+
+	@Test
+	public void 各ノードの実行時間の記録が異なっても分割が重複しない() throws Exception {
+		List<String> shard0 = createShard(0, durations);
+		List<String> shard1 = createShard(1, localDurations);
+		Set<String> all = new HashSet<String>(shard0);
+		all.addAll(shard1);
+		assertThat(shard0.size() + shard1.size(), is(4));
+		assertThat(all.size(), is(4));
+	}
+
+	private static List<String> createShard(int shardIndex, File localHistory) throws Exception {
+		System.setProperty(DurationHistory.HISTORY_FILE_PROPERTY, localHistory.getPath());
+		System.setProperty(S2ShardSuite.SHARD_INDEX_PROPERTY, String.valueOf(shardIndex));
+		return getClassNames(new S2ShardSuite(AllTests.class, new AllDefaultPossibilitiesBuilder(
+		        true)));
+	}
+
+	private static File createDurations(long a, long b, long c, long d) throws Exception {
+		File file = File.createTempFile("s2test-durations", ".properties");
+		Properties properties = new Properties();
+		properties.setProperty(A.class.getName(), String.valueOf(a));
+		properties.setProperty(B.class.getName(), String.valueOf(b));
+		properties.setProperty(C.class.getName(), String.valueOf(c));
+		properties.setProperty(D.class.getName(), String.valueOf(d));
+		OutputStream out = new FileOutputStream(file);
+		properties.store(out, null);
+		out.close();
+		return file;
+	}
+
+	private static List<String> getClassNames(S2ShardSuite suite) {
+		List<String> result = new ArrayList<String>();
+		for (Description child : suite.getDescription().getChildren()) {
+			result.add(child.getDisplayName());
+		}
+		return result;
+	}
+}
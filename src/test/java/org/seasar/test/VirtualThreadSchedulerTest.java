@@ -0,0 +1,62 @@
+package org.seasar.test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class VirtualThreadSchedulerTest {
+
+	@Test
+	public void 同時に実行する数が上限を超えないこと() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final AtomicInteger finished = new AtomicInteger();
+		VirtualThreadScheduler scheduler = new VirtualThreadScheduler(2);
+		for (int i = 0; i < 10; i++) {
+			scheduler.schedule(new Runnable() {
+				public void run() {
+					int current = running.incrementAndGet();
+					synchronized (maxRunning) {
+						maxRunning.set(Math.max(maxRunning.get(), current));
+					}
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+					finished.incrementAndGet();
+				}
+			});
+		}
+		scheduler.finished();
+		assertThat(finished.get(), is(10));
+		assertThat(maxRunning.get() <= 2, is(true));
+	}
+
+	@Test
+	public void スケジュールしたスレッドのコンテキストクラスローダが設定されること() {
+		Thread thread = Thread.currentThread();
+		ClassLoader original = thread.getContextClassLoader();
+		final ClassLoader classLoader = new URLClassLoader(new URL[0], original);
+		final ClassLoader[] actual = new ClassLoader[1];
+		thread.setContextClassLoader(classLoader);
+		try {
+			VirtualThreadScheduler scheduler = new VirtualThreadScheduler(1);
+			scheduler.schedule(new Runnable() {
+				public void run() {
+					actual[0] = Thread.currentThread().getContextClassLoader();
+				}
+			});
+			scheduler.finished();
+		} finally {
+			thread.setContextClassLoader(original);
+		}
+		assertThat(actual[0], is(classLoader));
+	}
+}
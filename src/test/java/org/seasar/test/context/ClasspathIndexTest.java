@@ -0,0 +1,60 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClasspathIndexTest {
+
+	private File workDir;
+
+	private List<File> roots;
+
+	@Before
+	public void before() throws IOException {
+		workDir = File.createTempFile("classpath-index", "");
+		workDir.delete();
+		File classes = new File(workDir, "classes");
+		new File(classes, "example/logic").mkdirs();
+		new File(classes, "example/logic/FooLogic.class").createNewFile();
+		File jar = new File(workDir, "lib.jar");
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+		out.putNextEntry(new ZipEntry("example/service/BarService.class"));
+		out.closeEntry();
+		out.close();
+		roots = Arrays.asList(classes, jar);
+	}
+
+	@Test
+	public void exists_ルートパッケージ配下のリソースの有無を判定する() {
+		ClasspathIndex index = new ClasspathIndex(new File(workDir, "index.properties"));
+		index.addRootPackageNames(new String[] { "example" });
+		assertThat(index.exists(roots, "example/logic/FooLogic.class"), is(Boolean.TRUE));
+		assertThat(index.exists(roots, "example/service/BarService.class"), is(Boolean.TRUE));
+		assertThat(index.exists(roots, "example/logic/BarLogic.class"), is(Boolean.FALSE));
+		assertThat(index.exists(roots, "other/Foo.class"), is(nullValue()));
+	}
+
+	@Test
+	public void save_保存したインデックスを別のインスタンスで使用できる() {
+		File indexFile = new File(workDir, "index.properties");
+		ClasspathIndex index = new ClasspathIndex(indexFile);
+		index.addRootPackageNames(new String[] { "example" });
+		index.exists(roots, "example/service/BarService.class");
+		index.save();
+		ClasspathIndex actual = new ClasspathIndex(indexFile);
+		assertThat(actual.exists(roots, "example/service/BarService.class"), is(Boolean.TRUE));
+		assertThat(actual.exists(roots, "example/service/FooService.class"), is(Boolean.FALSE));
+	}
+}
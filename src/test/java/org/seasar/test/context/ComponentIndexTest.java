@@ -0,0 +1,98 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.S2Container;
+
+public class ComponentIndexTest {
+
+	public interface Dao {
+	}
+
+	public static class AbstractDao implements Dao {
+	}
+
+	public static class UserDao extends AbstractDao {
+	}
+
+	public static class Clock {
+	}
+
+	private S2Container container;
+
+	private S2Container child;
+
+	private ComponentDef rootClockDef;
+
+	private ComponentDef childClockDef;
+
+	private ComponentDef userDaoDef;
+
+	@Before
+	public void before() {
+		rootClockDef = createComponentDef("clock", Clock.class);
+		childClockDef = createComponentDef("clock", Clock.class);
+		userDaoDef = createComponentDef("userDao", UserDao.class);
+		child = mock(S2Container.class);
+		when(child.getComponentDefSize()).thenReturn(2);
+		when(child.getComponentDef(0)).thenReturn(childClockDef);
+		when(child.getComponentDef(1)).thenReturn(userDaoDef);
+		container = mock(S2Container.class);
+		when(container.getComponentDefSize()).thenReturn(1);
+		when(container.getComponentDef(0)).thenReturn(rootClockDef);
+		when(container.getChildSize()).thenReturn(1);
+		when(container.getChild(0)).thenReturn(child);
+	}
+
+	@Test
+	public void 親のコンテナと子コンテナのコンポーネントを名前と型から取得できること() {
+		ComponentIndex componentIndex = new ComponentIndex(container);
+
+		assertThat(componentIndex.getComponentDef("clock"), is(sameInstance(rootClockDef)));
+		assertThat(componentIndex.getComponentDef(Clock.class), is(sameInstance(rootClockDef)));
+		assertThat(componentIndex.getComponentDef("userDao"), is(sameInstance(userDaoDef)));
+		assertThat(componentIndex.getComponentDef(AbstractDao.class), is(sameInstance(userDaoDef)));
+		assertThat(componentIndex.getComponentDef(Dao.class), is(sameInstance(userDaoDef)));
+		verify(container, never()).hasComponentDef("clock");
+		verify(container, never()).hasComponentDef(Dao.class);
+	}
+
+	@Test
+	public void 存在しないキーはコンテナに1度だけ問い合わせること() {
+		ComponentIndex componentIndex = new ComponentIndex(container);
+
+		assertThat(componentIndex.getComponentDef(String.class), is(nullValue()));
+		assertThat(componentIndex.hasComponentDef(String.class), is(false));
+		verify(container, times(1)).hasComponentDef(String.class);
+	}
+
+	@Test
+	public void rootのコンテナに登録された場合はインデックスを作り直すこと() {
+		ComponentIndex componentIndex = new ComponentIndex(container);
+		assertThat(componentIndex.hasComponentDef("userService"), is(false));
+
+		ComponentDef userServiceDef = createComponentDef("userService", Object.class);
+		when(container.getComponentDefSize()).thenReturn(2);
+		when(container.getComponentDef(1)).thenReturn(userServiceDef);
+
+		assertThat(componentIndex.getComponentDef("userService"), is(sameInstance(userServiceDef)));
+	}
+
+	private static ComponentDef createComponentDef(String name, Class<?> componentClass) {
+		ComponentDef componentDef = mock(ComponentDef.class);
+		when(componentDef.getComponentName()).thenReturn(name);
+		when(componentDef.getComponentClass()).thenReturn(componentClass);
+		return componentDef;
+	}
+}
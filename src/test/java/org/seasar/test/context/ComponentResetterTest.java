@@ -0,0 +1,171 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.InstanceDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.impl.S2ContainerImpl;
+
+public class ComponentResetterTest {
+
+	public interface Cache {
+	}
+
+	public static class CacheImpl implements Cache {
+	}
+
+	public static class Service {
+		public Cache cache;
+	}
+
+	public static class Action {
+		public void setService(Service service) {
+		}
+	}
+
+	public static class Other {
+		public String name;
+	}
+
+	public static class Counter {
+		private int count;
+
+		private Cache cache;
+
+		public int increment() {
+			return ++count;
+		}
+
+		public Cache getCache() {
+			return cache;
+		}
+
+		public void setCache(Cache cache) {
+			this.cache = cache;
+		}
+	}
+
+	private S2Container container;
+
+	private ComponentDef cacheDef;
+
+	private ComponentDef serviceDef;
+
+	private ComponentDef actionDef;
+
+	private ComponentDef otherDef;
+
+	@Before
+	public void before() {
+		cacheDef = createComponentDef("cache", CacheImpl.class);
+		serviceDef = createComponentDef("service", Service.class);
+		actionDef = createComponentDef("action", Action.class);
+		otherDef = createComponentDef("other", Other.class);
+		container = mock(S2Container.class);
+		when(container.getComponentDefSize()).thenReturn(4);
+		when(container.getComponentDef(0)).thenReturn(cacheDef);
+		when(container.getComponentDef(1)).thenReturn(serviceDef);
+		when(container.getComponentDef(2)).thenReturn(actionDef);
+		when(container.getComponentDef(3)).thenReturn(otherDef);
+	}
+
+	@Test
+	public void reset_名前で指定したコンポーネントと依存するコンポーネントが破棄される() {
+		List<ComponentDef> actual =
+		        new ComponentResetter().reset(container, new String[] { "cache" }, new Class<?>[0]);
+		assertThat(actual.size(), is(3));
+		assertThat(actual, hasItems(cacheDef, serviceDef, actionDef));
+		verify(cacheDef).destroy();
+		verify(serviceDef).destroy();
+		verify(actionDef).destroy();
+		verify(otherDef, never()).destroy();
+	}
+
+	@Test
+	public void reset_型で指定したコンポーネントのみが破棄される() {
+		List<ComponentDef> actual =
+		        new ComponentResetter().reset(container, new String[0], new Class<?>[] { Action.class });
+		assertThat(actual.size(), is(1));
+		verify(actionDef).destroy();
+		verify(cacheDef, never()).destroy();
+		verify(serviceDef, never()).destroy();
+	}
+
+	@Test
+	public void reset_一致するコンポーネントが存在しない名前を指定した場合は例外() {
+		S2Container container = new S2ContainerImpl();
+		container.register(CacheImpl.class, "cache");
+		container.register(Counter.class, "counter");
+		container.init();
+		Counter counter = (Counter) container.getComponent("counter");
+		try {
+			new ComponentResetter().reset(container, new String[] { "counter", "countr" },
+			        new Class<?>[] { Other.class });
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage(), containsString("countr"));
+			assertThat(e.getMessage(), containsString(Other.class.getName()));
+			assertThat(e.getMessage(), not(containsString("[counter")));
+		}
+		assertThat(container.getComponent("counter"), is(not(sameInstance((Object) counter))));
+	}
+
+	@Test
+	public void reset_実際のコンテナで名前と型に一致するコンポーネントが破棄される() {
+		S2Container container = new S2ContainerImpl();
+		container.register(CacheImpl.class, "cache");
+		container.register(Counter.class, "counter");
+		container.register(Other.class, "other");
+		container.init();
+		Counter counter = (Counter) container.getComponent("counter");
+		Other other = (Other) container.getComponent("other");
+		List<ComponentDef> actual =
+		        new ComponentResetter().reset(container, new String[0], new Class<?>[] { Cache.class });
+		assertThat(actual.size(), is(2));
+		assertThat(container.getComponent("counter"), is(not(sameInstance((Object) counter))));
+		assertThat(container.getComponent("other"), is(sameInstance((Object) other)));
+	}
+
+	@Test
+	public void resetAll_singletonのコンポーネントが再取得時に再生成される() {
+		S2Container container = new S2ContainerImpl();
+		container.register(CacheImpl.class, "cache");
+		container.register(Counter.class, "counter");
+		container.init();
+		Counter counter = (Counter) container.getComponent("counter");
+		Cache cache = counter.getCache();
+		counter.increment();
+		new ComponentResetter().resetAll(container);
+		Counter actual = (Counter) container.getComponent("counter");
+		assertThat(actual, is(not(sameInstance(counter))));
+		assertThat(actual.increment(), is(1));
+		assertThat(actual.getCache(), is(notNullValue()));
+		assertThat(actual.getCache(), is(not(sameInstance(cache))));
+	}
+
+	private static ComponentDef createComponentDef(String name, Class<?> componentClass) {
+		ComponentDef componentDef = mock(ComponentDef.class);
+		InstanceDef instanceDef = mock(InstanceDef.class);
+		when(instanceDef.getName()).thenReturn(InstanceDef.SINGLETON_NAME);
+		when(componentDef.getComponentName()).thenReturn(name);
+		when(componentDef.getComponentClass()).thenReturn(componentClass);
+		when(componentDef.getInstanceDef()).thenReturn(instanceDef);
+		return componentDef;
+	}
+}
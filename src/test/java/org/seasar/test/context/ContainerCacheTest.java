@@ -0,0 +1,134 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.deployer.InstanceDefFactory;
+import org.seasar.framework.container.impl.ComponentDefImpl;
+import org.seasar.framework.container.impl.S2ContainerImpl;
+import org.seasar.test.annotation.Poolable;
+import org.seasar.test.context.include.ContainerInclude;
+
+public class ContainerCacheTest {
+
+	@Poolable
+	public static class PooledBuilder {
+		public void reset() {
+		}
+	}
+
+	private ContainerCache containerCache;
+
+	@Before
+	public void before() {
+		containerCache = new ContainerCache(2);
+	}
+
+	@Test
+	public void get_キャッシュされている場合はヒット数が加算される() {
+		ContainerCache.Entry entry = createEntry();
+		containerCache.put(new ContainerKey("a.dicon"), entry);
+		assertThat(containerCache.get(new ContainerKey("a.dicon")), is(sameInstance(entry)));
+		assertThat(containerCache.get(new ContainerKey("b.dicon")), is(nullValue()));
+		assertThat(containerCache.getHitCount(), is(1L));
+		assertThat(containerCache.getMissCount(), is(1L));
+	}
+
+	@Test
+	public void put_上限を超えた場合は最も使用されていないコンテナが破棄される() {
+		ContainerCache.Entry a = createEntry();
+		ContainerCache.Entry b = createEntry();
+		ContainerCache.Entry c = createEntry();
+		containerCache.put(new ContainerKey("a.dicon"), a);
+		containerCache.put(new ContainerKey("b.dicon"), b);
+		containerCache.get(new ContainerKey("a.dicon"));
+		containerCache.put(new ContainerKey("c.dicon"), c);
+		assertThat(containerCache.size(), is(2));
+		assertThat(b.isDestroyed(), is(true));
+		verify(b.getContainer()).destroy();
+		verify(a.getContainer(), never()).destroy();
+	}
+
+	@Test
+	public void put_使用中のコンテナは上限を超えても破棄されない() {
+		ContainerCache.Entry a = createEntry();
+		ContainerCache.Entry b = createEntry();
+		ContainerCache.Entry c = createEntry();
+		containerCache.putAndAcquire(new ContainerKey("a.dicon"), a);
+		containerCache.put(new ContainerKey("b.dicon"), b);
+		containerCache.put(new ContainerKey("c.dicon"), c);
+		assertThat(a.isDestroyed(), is(false));
+		assertThat(b.isDestroyed(), is(true));
+	}
+
+	@Test
+	public void invalidate_使用中のコンテナは解放時に破棄される() {
+		ContainerCache.Entry entry = createEntry();
+		containerCache.putAndAcquire(new ContainerKey("a.dicon"), entry);
+		containerCache.invalidate(new ContainerKey("a.dicon"));
+		assertThat(entry.isDestroyed(), is(false));
+		containerCache.release(entry);
+		assertThat(entry.isDestroyed(), is(true));
+	}
+
+	@Test
+	public void invalidate_コンテナが破棄される() {
+		ContainerCache.Entry entry = createEntry();
+		containerCache.put(new ContainerKey("a.dicon"), entry);
+		containerCache.invalidate(new ContainerKey("a.dicon"));
+		assertThat(containerCache.get(new ContainerKey("a.dicon")), is(nullValue()));
+		verify(entry.getContainer()).destroy();
+	}
+
+	@Test
+	public void invalidateAll_diconファイルが一致するコンテナはincludeとENVに関わらず破棄される() {
+		ContainerCache.Entry a = createEntry();
+		ContainerCache.Entry b = createEntry();
+		containerCache.setMaxSize(3);
+		containerCache.put(new ContainerKey("a.dicon", null, "ut"), a);
+		containerCache.put(new ContainerKey("a.dicon", Arrays.<Class<? extends ContainerInclude>> asList(ContainerInclude.class), "ct"), b);
+		containerCache.put(new ContainerKey("b.dicon", null, "ut"), createEntry());
+		assertThat(containerCache.invalidateAll("a.dicon").size(), is(2));
+		assertThat(a.isDestroyed(), is(true));
+		assertThat(b.isDestroyed(), is(true));
+		assertThat(containerCache.size(), is(1));
+	}
+
+	@Test
+	public void put_破棄されたコンテナのPrototypePoolが解放される() {
+		ComponentDefImpl builderDef = new ComponentDefImpl(PooledBuilder.class, "builder");
+		builderDef.setInstanceDef(InstanceDefFactory.PROTOTYPE);
+		S2Container container = new S2ContainerImpl();
+		container.register(builderDef);
+		builderDef = null;
+		Object owner = new Object();
+		PrototypePool.getInstance(container).lease("builder", owner);
+		PrototypePool.release(owner);
+		containerCache.put(new ContainerKey("a.dicon"), new ContainerCache.Entry(container,
+		        getClass().getClassLoader()));
+		WeakReference<S2Container> ref = new WeakReference<S2Container>(container);
+		container = null;
+		containerCache.put(new ContainerKey("b.dicon"), createEntry());
+		containerCache.put(new ContainerKey("c.dicon"), createEntry());
+
+		for (int i = 0; i < 10 && ref.get() != null; i++) {
+			System.gc();
+		}
+		assertThat(ref.get(), is(nullValue()));
+	}
+
+	private ContainerCache.Entry createEntry() {
+		return new ContainerCache.Entry(mock(S2Container.class), getClass().getClassLoader());
+	}
+}
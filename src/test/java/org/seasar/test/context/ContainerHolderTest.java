@@ -0,0 +1,204 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.SingletonS2ContainerFactory;
+
+public class ContainerHolderTest {
+
+	private static final ContainerKey KEY_A = new ContainerKey(
+	        "org/seasar/test/context/ContainerHolderTest_a.dicon", null, null, false, true);
+
+	private static final ContainerKey KEY_B = new ContainerKey(
+	        "org/seasar/test/context/ContainerHolderTest_b.dicon", null, null, false, true);
+
+	private ClassLoader original;
+
+	private ContainerCache containerCache;
+
+	private ContainerHolder containerHolder;
+
+	@Before
+	public void before() {
+		original = Thread.currentThread().getContextClassLoader();
+		containerCache = new ContainerCache(4);
+		containerHolder = new ContainerHolder(containerCache);
+		containerHolder.setWarmDeploy(false);
+	}
+
+	@After
+	public void after() {
+		containerHolder.releaseContainer();
+		containerCache.clear();
+		Thread.currentThread().setContextClassLoader(original);
+	}
+
+	@Test
+	public void prefetchContainer_実行中のテストのコンテナとクラスローダは変更されない() {
+		S2Container current = containerHolder.getContainer(KEY_A);
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+		ContainerHolder prefetcher = new ContainerHolder(containerCache);
+		prefetcher.setWarmDeploy(false);
+		assertThat(prefetcher.prefetchContainer(KEY_B), is(true));
+
+		assertThat(containerCache.peek(KEY_B), is(notNullValue()));
+		assertThat(SingletonS2ContainerFactory.getContainer(), is(sameInstance(current)));
+		assertThat(Thread.currentThread().getContextClassLoader(), is(sameInstance(classLoader)));
+	}
+
+	@Test
+	public void prefetchContainer_SingletonS2ContainerFactoryにコンテナが設定されていない場合も設定しない() {
+		containerHolder.getContainer(KEY_A);
+		containerHolder.releaseContainer();
+		SingletonS2ContainerFactory.setContainer(null);
+
+		assertThat(containerHolder.prefetchContainer(KEY_B), is(true));
+
+		assertThat(SingletonS2ContainerFactory.hasContainer(), is(false));
+	}
+
+	@Test
+	public void getContainer_NamingConventionの登録の設定が異なる場合はコンテナを共有しない() {
+		ContainerHolder other = new ContainerHolder(containerCache);
+		other.setWarmDeploy(false);
+		other.setRegisterNamingConvention(false);
+		S2Container container = containerHolder.getContainer(KEY_A);
+		containerHolder.releaseContainer();
+
+		assertThat(other.getContainer(KEY_A), is(not(sameInstance(container))));
+		other.releaseContainer();
+		assertThat(containerCache.size(), is(2));
+		assertThat(containerHolder.getContainer(KEY_A), is(sameInstance(container)));
+	}
+
+	@Test
+	public void getContainer_他のスレッドが同じコンテナを使用中の場合は待機しない() throws Exception {
+		S2Container container = containerHolder.getContainer(KEY_A);
+		ContainerHolder other = new ContainerHolder(containerCache);
+		other.setWarmDeploy(false);
+
+		GetContainerThread thread = new GetContainerThread(other, KEY_A);
+		thread.start();
+		thread.join(5000L);
+
+		assertThat(thread.container, is(sameInstance(container)));
+	}
+
+	@Test
+	public void getContainer_他のスレッドが異なるコンテナを使用中の場合は解放まで待機する() throws Exception {
+		containerHolder.getContainer(KEY_A);
+		ContainerHolder other = new ContainerHolder(containerCache);
+		other.setWarmDeploy(false);
+
+		GetContainerThread thread = new GetContainerThread(other, KEY_B);
+		thread.start();
+		thread.join(500L);
+
+		assertThat(thread.isAlive(), is(true));
+		assertThat(containerCache.peek(KEY_B), is(nullValue()));
+
+		containerHolder.releaseContainer();
+		thread.join(5000L);
+
+		assertThat(thread.container, is(sameInstance(containerCache.peek(KEY_B).getContainer())));
+		assertThat(SingletonS2ContainerFactory.getContainer(), is(sameInstance(thread.container)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getContainer_同じスレッドで異なるコンテナを使用中の場合は例外() {
+		containerHolder.getContainer(KEY_A);
+		ContainerHolder other = new ContainerHolder(containerCache);
+		other.setWarmDeploy(false);
+
+		other.getContainer(KEY_B);
+	}
+
+	@Test
+	public void getContainer_読み込みごとにミスを1回だけ数える() {
+		containerHolder.getContainer(KEY_A);
+
+		assertThat(containerCache.getMissCount(), is(1L));
+		assertThat(containerCache.getHitCount(), is(0L));
+
+		ContainerHolder other = new ContainerHolder(containerCache);
+		other.setWarmDeploy(false);
+		other.getContainer(KEY_A);
+		other.releaseContainer();
+
+		assertThat(containerCache.getMissCount(), is(1L));
+		assertThat(containerCache.getHitCount(), is(1L));
+	}
+
+	@Test
+	public void resetInstances_他で使用されていない場合はキャッシュしたコンテナを使い続ける() {
+		containerHolder.getContainer(KEY_A);
+		ContainerCache.Entry entry = containerCache.peek(KEY_A);
+
+		containerHolder.resetInstances(KEY_A);
+
+		assertThat(containerCache.peek(KEY_A), is(sameInstance(entry)));
+		assertThat(entry.isDestroyed(), is(false));
+	}
+
+	@Test
+	public void resetInstances_他で使用中の場合はキャッシュから除外し使用の終了後に破棄する() {
+		ContainerHolder other = new ContainerHolder(containerCache);
+		other.setWarmDeploy(false);
+		S2Container container = other.getContainer(KEY_A);
+		containerHolder.getContainer(KEY_A);
+		ContainerCache.Entry entry = containerCache.peek(KEY_A);
+
+		containerHolder.resetInstances(KEY_A);
+
+		assertThat(containerCache.peek(KEY_A), is(nullValue()));
+		assertThat(entry.isDestroyed(), is(false));
+		assertThat(other.getContainer(KEY_A), is(sameInstance(container)));
+		other.releaseContainer();
+		assertThat(entry.isDestroyed(), is(true));
+	}
+
+	@Test
+	public void getContainer_先読みしたコンテナは使用時にSingletonS2ContainerFactoryに設定される() {
+		containerHolder.getContainer(KEY_A);
+		containerHolder.prefetchContainer(KEY_B);
+
+		S2Container prefetched = containerCache.peek(KEY_B).getContainer();
+		assertThat(containerHolder.getContainer(KEY_B), is(sameInstance(prefetched)));
+		assertThat(SingletonS2ContainerFactory.getContainer(), is(sameInstance(prefetched)));
+		assertThat(Thread.currentThread().getContextClassLoader(),
+		        is(sameInstance(containerCache.peek(KEY_B).getClassLoader())));
+	}
+
+	private static class GetContainerThread extends Thread {
+
+		private final ContainerHolder containerHolder;
+
+		private final ContainerKey key;
+
+		private volatile S2Container container;
+
+		GetContainerThread(ContainerHolder containerHolder, ContainerKey key) {
+			this.containerHolder = containerHolder;
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			try {
+				container = containerHolder.getContainer(key);
+			} finally {
+				containerHolder.releaseContainer();
+			}
+		}
+	}
+}
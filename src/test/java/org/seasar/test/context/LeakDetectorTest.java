@@ -0,0 +1,115 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.seasar.test.S2JUnit4ClassRunner;
+import org.seasar.test.annotation.Dirty;
+import org.seasar.test.annotation.RootDicon;
+import org.seasar.test.rule.DirtyContainerRule;
+
+public class LeakDetectorTest {
+
+	public static class FirstTest {
+	}
+
+	public static class SecondTest {
+	}
+
+	@RunWith(S2JUnit4ClassRunner.class)
+	@RootDicon(path = "org/seasar/test/S2JUnit4ClassRunnerTest.dicon")
+	public static class DirtyTest {
+		@Rule
+		public DirtyContainerRule dirtyContainerRule = new DirtyContainerRule(DirtyContainerRule.Mode.DIRTY);
+
+		public List<?> list;
+
+		@Test
+		@Dirty
+		public void test() {
+			assertThat(list != null, is(true));
+		}
+	}
+
+	private final LeakDetector leakDetector = new LeakDetector(true, 0L, false);
+
+	private Object retained;
+
+	@Test
+	public void 参照が残っているコンテナをリークとして報告すること() {
+		retained = new Object();
+		leakDetector.track(retained, null, "leaked.dicon");
+
+		leakDetector.collectGarbage();
+		List<String> leaks = leakDetector.findLeaks(FirstTest.class);
+
+		assertThat(leaks.size(), is(1));
+		assertThat(leaks.get(0).startsWith("leaked.dicon (container reachable"), is(true));
+	}
+
+	@Test
+	public void 回収されたコンテナは報告しないこと() {
+		leakDetector.track(new Object(), null, "collected.dicon");
+
+		leakDetector.collectGarbage();
+
+		assertThat(leakDetector.findLeaks(FirstTest.class).isEmpty(), is(true));
+	}
+
+	@Test
+	public void 他のテストクラスが破棄したコンテナは報告しないこと() {
+		retained = new Object();
+		leakDetector.beforeTestClass(SecondTest.class);
+		leakDetector.track(retained, null, "leaked.dicon");
+
+		leakDetector.collectGarbage();
+
+		assertThat(leakDetector.findLeaks(FirstTest.class).isEmpty(), is(true));
+		assertThat(leakDetector.findLeaks(SecondTest.class).size(), is(1));
+	}
+
+	@Test
+	public void リークは破棄したテストクラスでのみ1度だけ失敗とすること() {
+		LeakDetector failOnLeak = new LeakDetector(true, 0L, true);
+		retained = new Object();
+		failOnLeak.beforeTestClass(FirstTest.class);
+		failOnLeak.track(retained, null, "leaked.dicon");
+		try {
+			failOnLeak.afterTestClass(FirstTest.class);
+			fail();
+		} catch (IllegalStateException e) {
+			assertThat(e.getMessage().startsWith("1 destroyed container(s)"), is(true));
+		}
+
+		failOnLeak.beforeTestClass(SecondTest.class);
+		failOnLeak.afterTestClass(SecondTest.class);
+	}
+
+	@Test
+	public void 最後のメソッドでコンテナを破棄したテストクラスをリークとして報告しないこと() {
+		LeakDetector instance = LeakDetector.getInstance();
+		boolean enabled = instance.isEnabled();
+		boolean failOnLeak = instance.isFailOnLeak();
+		ClassLoader original = Thread.currentThread().getContextClassLoader();
+		instance.setEnabled(true);
+		instance.setFailOnLeak(true);
+		try {
+			Result result = JUnitCore.runClasses(DirtyTest.class);
+
+			assertThat(result.getFailures().toString(), result.wasSuccessful(), is(true));
+		} finally {
+			instance.setEnabled(enabled);
+			instance.setFailOnLeak(failOnLeak);
+			Thread.currentThread().setContextClassLoader(original);
+			ContainerCache.getInstance().clear();
+		}
+	}
+}
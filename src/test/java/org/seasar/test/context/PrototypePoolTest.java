@@ -0,0 +1,91 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.seasar.framework.container.ComponentDef;
+import org.seasar.framework.container.InstanceDef;
+import org.seasar.framework.container.S2Container;
+import org.seasar.test.annotation.Poolable;
+
+public class PrototypePoolTest {
+
+	@Poolable(resetMethod = "clear")
+	public static class Builder {
+		public int resetCount;
+
+		public void clear() {
+			resetCount++;
+		}
+	}
+
+	private S2Container container;
+
+	@Before
+	public void before() {
+		ComponentDef builderDef = mock(ComponentDef.class);
+		InstanceDef prototype = mock(InstanceDef.class);
+		when(prototype.getName()).thenReturn(InstanceDef.PROTOTYPE_NAME);
+		when(builderDef.getInstanceDef()).thenReturn(prototype);
+		when(builderDef.getComponentClass()).thenReturn(Builder.class);
+		when(builderDef.getComponent()).thenAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				return new Builder();
+			}
+		});
+		container = mock(S2Container.class);
+		when(container.hasComponentDef("builder")).thenReturn(true);
+		when(container.getComponentDef("builder")).thenReturn(builderDef);
+	}
+
+	@After
+	public void after() {
+		PrototypePool.clear(container);
+	}
+
+	@Test
+	public void 戻したインスタンスをリセットして再び貸し出すこと() {
+		PrototypePool pool = PrototypePool.getInstance(container);
+		Object first = new Object();
+		Builder builder = (Builder) pool.lease("builder", first);
+		PrototypePool.release(first);
+
+		Builder reused = (Builder) pool.lease("builder", new Object());
+
+		assertThat(reused, is(sameInstance(builder)));
+		assertThat(reused.resetCount, is(1));
+	}
+
+	@Test
+	public void 貸し出し中のインスタンスは別のテストインスタンスに貸し出さないこと() {
+		PrototypePool pool = PrototypePool.getInstance(container);
+		Builder first = (Builder) pool.lease("builder", new Object());
+
+		Builder second = (Builder) pool.lease("builder", new Object());
+
+		assertThat(second, is(not(sameInstance(first))));
+	}
+
+	@Test
+	public void クリア後に戻したインスタンスは再利用しないこと() {
+		PrototypePool pool = PrototypePool.getInstance(container);
+		Object owner = new Object();
+		Builder builder = (Builder) pool.lease("builder", owner);
+		PrototypePool.clear(container);
+		PrototypePool.release(owner);
+
+		Builder created = (Builder) PrototypePool.getInstance(container).lease("builder",
+		        new Object());
+
+		assertThat(created, is(not(sameInstance(builder))));
+	}
+}
@@ -0,0 +1,57 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestRule;
+import org.junit.runners.model.TestClass;
+import org.seasar.test.annotation.InstanceRule;
+import org.seasar.test.rule.S2InstanceRule;
+import org.seasar.test.rule.S2TestRule;
+
+public class RuleDescriptorTest {
+
+	public static class Sample {
+		@InstanceRule
+		public S2InstanceRule instanceRule = new S2InstanceRule() {
+			@Override
+			public void apply(TestContext testContext) {
+			}
+		};
+
+		@Rule
+		public S2TestRule testRule = new S2TestRule() {
+		};
+
+		@Rule
+		public TemporaryFolder folder = new TemporaryFolder();
+	}
+
+	@Test
+	public void テストインスタンスごとのフィールドの値を返却すること() {
+		RuleDescriptor descriptor = new RuleDescriptor(new TestClass(Sample.class));
+		Sample first = new Sample();
+		Sample second = new Sample();
+
+		List<S2InstanceRule> instanceRules = descriptor.getInstanceRules(first);
+		assertThat(instanceRules.size(), is(1));
+		assertThat(instanceRules.get(0), is(sameInstance(first.instanceRule)));
+		List<S2TestRule> testRules = descriptor.getRules(second, S2TestRule.class);
+		assertThat(testRules.size(), is(1));
+		assertThat(testRules.get(0), is(sameInstance(second.testRule)));
+	}
+
+	@Test
+	public void 指定した型のルールのみを返却すること() {
+		RuleDescriptor descriptor = new RuleDescriptor(new TestClass(Sample.class));
+
+		assertThat(descriptor.getRules(new Sample(), TestRule.class).size(), is(2));
+		assertThat(descriptor.getRules(new Sample(), TemporaryFolder.class).size(), is(1));
+	}
+}
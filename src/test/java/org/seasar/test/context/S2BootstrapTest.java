@@ -0,0 +1,67 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.unit.UnitClassLoader;
+
+public class S2BootstrapTest {
+
+	private ClassLoader original;
+
+	@Before
+	public void before() {
+		original = Thread.currentThread().getContextClassLoader();
+		S2Bootstrap.reset();
+	}
+
+	@After
+	public void after() {
+		Thread.currentThread().setContextClassLoader(original);
+		S2Bootstrap.reset();
+	}
+
+	@Test
+	public void 設定ファイルが更新された場合は再設定が必要となること() throws Exception {
+		File directory = File.createTempFile("s2test-bootstrap", "");
+		directory.delete();
+		directory.mkdirs();
+		File file = new File(directory, "s2test-bootstrap.dicon");
+		file.createNewFile();
+		try {
+			Thread.currentThread().setContextClassLoader(
+			        new URLClassLoader(new URL[] { directory.toURI().toURL() }, original));
+			S2Bootstrap.configure(file.getName());
+			assertThat(S2Bootstrap.isConfigured(file.getName()), is(true));
+
+			file.setLastModified(file.lastModified() - 10000L);
+
+			assertThat(S2Bootstrap.isConfigured(file.getName()), is(false));
+			S2Bootstrap.configure(file.getName());
+			assertThat(S2Bootstrap.isConfigured(file.getName()), is(true));
+		} finally {
+			S2ContainerFactory.destroy();
+			file.delete();
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void 以前の読み込みで設定されたクラスローダを取り除くこと() {
+		ClassLoader indexed = new IndexedClassLoader(original, new ClasspathIndex(new File(
+		        "target/s2test/test-classpath-index.properties")));
+		ClassLoader unit = new UnitClassLoader(new UnitClassLoader(indexed));
+		Thread.currentThread().setContextClassLoader(unit);
+
+		assertThat(S2Bootstrap.getOriginalClassLoader(), is(sameInstance(original)));
+	}
+}
@@ -0,0 +1,89 @@
+package org.seasar.test.context;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.factory.S2ContainerFactory;
+import org.seasar.framework.unit.UnitClassLoader;
+
+public class SharedIncludeProviderTest {
+
+	private static final String PREFIX = "org/seasar/test/context/SharedIncludeProviderTest_";
+
+	private ClassLoader original;
+
+	private UnitClassLoader unitClassLoader1;
+
+	private S2Container root1;
+
+	private S2Container root2;
+
+	@Before
+	public void before() {
+		original = Thread.currentThread().getContextClassLoader();
+		SharedIncludeProvider.install(false);
+		unitClassLoader1 = new UnitClassLoader(original);
+		root1 = create(PREFIX + "root1.dicon", unitClassLoader1);
+		root2 = create(PREFIX + "root2.dicon", new UnitClassLoader(original));
+	}
+
+	@After
+	public void after() {
+		Thread.currentThread().setContextClassLoader(original);
+		SharedIncludeProvider.clear();
+		SharedIncludeProvider.install(true);
+	}
+
+	@Test
+	public void 同じdiconファイルをincludeしたコンテナで子コンテナが共有される() {
+		assertThat(root1.getComponent("sharedList"), is(sameInstance(root2
+		        .getComponent("sharedList"))));
+		assertThat(root1.getComponent("nestedMap"), is(sameInstance(root2
+		        .getComponent("nestedMap"))));
+		assertThat(root1.getComponent("root1"), is(not(sameInstance(root2.getComponent("root2")))));
+	}
+
+	@Test
+	public void 共有された子コンテナとその子孫がrootのコンテナに登録される() {
+		S2Container shared = root1.getDescendant(PREFIX + "shared.dicon");
+		assertThat(SharedIncludeProvider.isShared(shared), is(true));
+		assertThat(root2.getDescendant(PREFIX + "shared.dicon"), is(sameInstance(shared)));
+		assertThat(root1.hasDescendant(PREFIX + "nested.dicon"), is(true));
+		assertThat(root2.hasDescendant(PREFIX + "nested.dicon"), is(true));
+	}
+
+	@Test
+	public void 共有された子コンテナはrootごとのクラスローダで生成されない() {
+		S2Container shared = root1.getDescendant(PREFIX + "shared.dicon");
+		assertThat(shared.getClassLoader(), is(sameInstance(original)));
+		assertThat(root1.getClassLoader(), is(sameInstance((ClassLoader) unitClassLoader1)));
+	}
+
+	@Test
+	public void requestのコンポーネントを含む子コンテナは共有されない() {
+		S2Container request1 = root1.getDescendant(PREFIX + "request.dicon");
+		S2Container request2 = root2.getDescendant(PREFIX + "request.dicon");
+		assertThat(SharedIncludeProvider.isShared(request1), is(false));
+		assertThat(request1, is(not(sameInstance(request2))));
+		assertThat(request1.getRoot(), is(sameInstance(root1)));
+	}
+
+	@Test
+	public void warm_deployの場合は共有されない() {
+		SharedIncludeProvider.install(true);
+		S2Container root = create(PREFIX + "root1.dicon", new UnitClassLoader(original));
+		assertThat(SharedIncludeProvider.isShared(root.getDescendant(PREFIX + "shared.dicon")),
+		        is(false));
+	}
+
+	private static S2Container create(String path, ClassLoader classLoader) {
+		Thread.currentThread().setContextClassLoader(classLoader);
+		return S2ContainerFactory.create(path);
+	}
+}
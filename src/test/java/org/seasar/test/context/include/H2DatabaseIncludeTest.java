@@ -0,0 +1,88 @@
+package org.seasar.test.context.include;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.framework.container.S2Container;
+import org.seasar.framework.container.impl.S2ContainerImpl;
+
+public class H2DatabaseIncludeTest {
+
+	private S2Container container;
+
+	@Before
+	public void before() {
+		container = new S2ContainerImpl();
+	}
+
+	@After
+	public void after() {
+		container.destroy();
+	}
+
+	@Test
+	public void execute_登録したDataSourceからスクリプトを適用したデータベースに接続できる() throws Exception {
+		new SampleH2DatabaseInclude().execute(container);
+
+		DataSource dataSource = (DataSource) container.getComponent("dataSource");
+		Connection connection = dataSource.getConnection();
+		try {
+			assertThat(count(connection), is(2));
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void execute_コンテナごとに独立したデータベースを使用する() throws Exception {
+		new SampleH2DatabaseInclude().execute(container);
+		S2Container other = new S2ContainerImpl();
+		new SampleH2DatabaseInclude().execute(other);
+		try {
+			Connection connection =
+			        ((DataSource) container.getComponent("dataSource")).getConnection();
+			Connection otherConnection =
+			        ((DataSource) other.getComponent("dataSource")).getConnection();
+			try {
+				Statement statement = connection.createStatement();
+				statement.executeUpdate("DELETE FROM EMP");
+				statement.close();
+				assertThat(count(connection), is(0));
+				assertThat(count(otherConnection), is(2));
+			} finally {
+				connection.close();
+				otherConnection.close();
+			}
+		} finally {
+			other.destroy();
+		}
+	}
+
+	private static int count(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM EMP");
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			statement.close();
+		}
+	}
+
+	public static class SampleH2DatabaseInclude extends H2DatabaseInclude {
+		@Override
+		protected String[] getScriptPaths() {
+			return new String[] { "h2/schema.sql", "h2/data.sql" };
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.seasar.test.context.include;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+public class H2TemplateTest {
+
+	private static final String[] SCRIPTS = { "h2/schema.sql", "h2/data.sql" };
+
+	@Test
+	public void createDatabase_スクリプトを適用した状態のデータベースが生成される() throws Exception {
+		Connection connection = H2Template.getInstance(SCRIPTS).createDatabase();
+		try {
+			assertThat(count(connection), is(2));
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void createDatabase_生成したデータベースはそれぞれ独立している() throws Exception {
+		H2Template template = H2Template.getInstance(SCRIPTS);
+		Connection first = template.createDatabase();
+		Connection second = template.createDatabase();
+		try {
+			Statement statement = first.createStatement();
+			statement.executeUpdate("DELETE FROM EMP");
+			statement.close();
+			assertThat(count(first), is(0));
+			assertThat(count(second), is(2));
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+
+	private static int count(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM EMP");
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			statement.close();
+		}
+	}
+}
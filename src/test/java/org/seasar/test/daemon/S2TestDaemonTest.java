@@ -0,0 +1,136 @@
+package org.seasar.test.daemon;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.seasar.test.context.IndexedClassLoader;
+
+public class S2TestDaemonTest {
+
+	private static final String RESOURCE = "s2test-daemon-test.dicon";
+
+	public static class ResourceTest {
+		@Test
+		public void test() {
+			ClassLoader classLoader =
+			        IndexedClassLoader.getInstance(Thread.currentThread().getContextClassLoader());
+			assertThat(classLoader.getResource(RESOURCE), notNullValue());
+		}
+	}
+
+	public static class BrokenTest {
+		private static final Object VALUE = fail();
+
+		private static Object fail() {
+			throw new IllegalStateException("broken");
+		}
+
+		@Test
+		public void test() {
+			assertThat(VALUE, notNullValue());
+		}
+	}
+
+	private File directory;
+
+	private S2TestDaemon daemon;
+
+	@Before
+	public void before() throws Exception {
+		directory = File.createTempFile("s2test-daemon", "");
+		directory.delete();
+		directory.mkdirs();
+		daemon = new S2TestDaemon(Collections.singletonList(directory));
+	}
+
+	@After
+	public void after() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+		IndexedClassLoader.clear();
+	}
+
+	@Test
+	public void 追加したリソースが次の実行で見つかる() throws Exception {
+		assertThat(request("RUN " + ResourceTest.class.getName()),
+		        containsString(S2TestDaemon.EXIT_PREFIX + 1));
+		OutputStream out = new FileOutputStream(new File(directory, RESOURCE));
+		out.write("<components/>".getBytes("UTF-8"));
+		out.close();
+		assertThat(request("RUN " + ResourceTest.class.getName()),
+		        containsString(S2TestDaemon.EXIT_PREFIX + 0));
+	}
+
+	@Test
+	public void 存在しないテストクラスを指定した場合は終了コード2() throws Exception {
+		String actual = request("RUN example.NotFoundTest");
+		assertThat(actual, containsString("class not found:example.NotFoundTest"));
+		assertThat(actual, containsString(S2TestDaemon.EXIT_PREFIX + 2));
+	}
+
+	@Test
+	public void テストクラスの初期化に失敗した場合は終了コード2で次の要求も処理する() throws Exception {
+		String actual = request("RUN " + BrokenTest.class.getName());
+		assertThat(actual, containsString("ExceptionInInitializerError"));
+		assertThat(actual, containsString(S2TestDaemon.EXIT_PREFIX + 2));
+		assertThat(request("RUN " + BrokenTest.class.getName()),
+		        containsString(S2TestDaemon.EXIT_PREFIX + 2));
+	}
+
+	private String request(String command) throws Exception {
+		final ServerSocket serverSocket =
+		        new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+		try {
+			Thread thread = new Thread("s2test-daemon-test") {
+				@Override
+				public void run() {
+					try {
+						Socket socket = serverSocket.accept();
+						try {
+							daemon.handle(socket);
+						} finally {
+							socket.close();
+						}
+					} catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+			thread.start();
+			Socket client = new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+			try {
+				client.getOutputStream().write((command + "\n").getBytes("UTF-8"));
+				client.getOutputStream().flush();
+				BufferedReader reader =
+				        new BufferedReader(new InputStreamReader(client.getInputStream(), "UTF-8"));
+				StringBuilder sb = new StringBuilder();
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					sb.append(line).append('\n');
+				}
+				thread.join();
+				return sb.toString();
+			} finally {
+				client.close();
+			}
+		} finally {
+			serverSocket.close();
+		}
+	}
+}
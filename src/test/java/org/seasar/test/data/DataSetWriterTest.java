@@ -0,0 +1,83 @@
+package org.seasar.test.data;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataSetWriterTest {
+
+	private JdbcDataSource dataSource;
+
+	private Connection keepAlive;
+
+	@Before
+	public void before() throws Exception {
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:DataSetWriterTest");
+		keepAlive = dataSource.getConnection();
+		Statement statement = keepAlive.createStatement();
+		statement.execute("CREATE TABLE DEPT (ID INTEGER PRIMARY KEY)");
+		statement.execute("CREATE TABLE EMP (ID INTEGER PRIMARY KEY, NAME VARCHAR(20),"
+		        + " DEPT_ID INTEGER REFERENCES DEPT(ID))");
+		statement.close();
+	}
+
+	@After
+	public void after() throws Exception {
+		keepAlive.close();
+	}
+
+	@Test
+	public void write_バッチサイズを超える行が登録される() throws Exception {
+		DataSet dataSet = new DataSet();
+		dataSet.addTable(new DataTable("DEPT", Arrays.asList("ID")));
+		DataTable emp = new DataTable("EMP", Arrays.asList("ID", "NAME", "DEPT_ID"));
+		for (int i = 0; i < 25; i++) {
+			emp.addRow(new Object[] { new BigDecimal(i), "name" + i, null });
+		}
+		dataSet.addTable(emp);
+		DataSetWriter writer = new DataSetWriter(dataSource);
+		writer.setBatchSize(10);
+		writer.write(dataSet);
+		assertThat(count("EMP"), is(25));
+		assertThat(keepAlive.getAutoCommit(), is(true));
+	}
+
+	@Test
+	public void write_参照整合性のチェックを無効にした場合は参照先より先に登録できる() throws Exception {
+		DataSet dataSet = new DataSet();
+		DataTable emp = new DataTable("EMP", Arrays.asList("ID", "NAME", "DEPT_ID"));
+		emp.addRow(new Object[] { new BigDecimal(1), "SCOTT", new BigDecimal(10) });
+		dataSet.addTable(emp);
+		DataTable dept = new DataTable("DEPT", Arrays.asList("ID"));
+		dept.addRow(new Object[] { new BigDecimal(10) });
+		dataSet.addTable(dept);
+		DataSetWriter writer = new DataSetWriter(dataSource);
+		writer.setDisableConstraints(true);
+		writer.write(dataSet);
+		assertThat(count("EMP"), is(1));
+		assertThat(count("DEPT"), is(1));
+	}
+
+	private int count(String tableName) throws SQLException {
+		Statement statement = keepAlive.createStatement();
+		try {
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + tableName);
+			resultSet.next();
+			return resultSet.getInt(1);
+		} finally {
+			statement.close();
+		}
+	}
+}
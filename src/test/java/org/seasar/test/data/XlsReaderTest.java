@@ -0,0 +1,97 @@
+package org.seasar.test.data;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.LittleEndian;
+import org.junit.Test;
+
+public class XlsReaderTest {
+
+	@Test
+	public void read_シートごとにテーブルとして読み込まれる() throws Exception {
+		HSSFWorkbook workbook = new HSSFWorkbook();
+		HSSFSheet emp = workbook.createSheet("EMP");
+		HSSFRow header = emp.createRow(0);
+		header.createCell(0).setCellValue("ID");
+		header.createCell(1).setCellValue("NAME");
+		HSSFRow row1 = emp.createRow(1);
+		row1.createCell(0).setCellValue(1);
+		row1.createCell(1).setCellValue("SCOTT");
+		HSSFRow row2 = emp.createRow(3);
+		row2.createCell(0).setCellValue(2.5);
+		HSSFSheet dept = workbook.createSheet("DEPT");
+		dept.createRow(0).createCell(0).setCellValue("DEPT_ID");
+
+		DataSet actual = new XlsReader().read(toInputStream(workbook));
+
+		assertThat(actual.getTables().size(), is(2));
+		DataTable table = actual.getTable("emp");
+		assertThat(table.getColumnNames(), is(Arrays.asList("ID", "NAME")));
+		assertThat(table.getRowSize(), is(2));
+		assertThat(table.getRows().get(0)[0], is((Object) new BigDecimal("1")));
+		assertThat(table.getRows().get(0)[1], is((Object) "SCOTT"));
+		assertThat(table.getRows().get(1)[0], is((Object) new BigDecimal("2.5")));
+		assertThat(table.getRows().get(1)[1], is(nullValue()));
+		assertThat(actual.getTable("DEPT").getRowSize(), is(0));
+	}
+
+	@Test
+	public void read_グラフシートより後のシートもシート名のテーブルとして読み込まれる() throws Exception {
+		HSSFWorkbook workbook = new HSSFWorkbook();
+		workbook.createSheet("CHART");
+		HSSFSheet emp = workbook.createSheet("EMP");
+		emp.createRow(0).createCell(0).setCellValue("ID");
+		emp.createRow(1).createCell(0).setCellValue(1);
+
+		DataSet actual = new XlsReader().read(toChartSheet(toInputStream(workbook), 0));
+
+		assertThat(actual.getTables().size(), is(1));
+		assertThat(actual.getTable("EMP").getRowSize(), is(1));
+		assertThat(actual.getTable("CHART"), is(nullValue()));
+	}
+
+	/**
+	 * 指定した位置のシートのBOFレコードの種類をグラフシートに書き換える。
+	 */
+	private static ByteArrayInputStream toChartSheet(ByteArrayInputStream in, int sheetIndex)
+	        throws Exception {
+		POIFSFileSystem fs = new POIFSFileSystem(in);
+		DocumentInputStream document = fs.createDocumentInputStream("Workbook");
+		byte[] bytes = new byte[document.available()];
+		document.readFully(bytes);
+		document.close();
+		int bofCount = 0;
+		for (int offset = 0; offset + 4 <= bytes.length;) {
+			int sid = LittleEndian.getUShort(bytes, offset);
+			int length = LittleEndian.getUShort(bytes, offset + 2);
+			if (sid == BOFRecord.sid && bofCount++ == sheetIndex + 1) {
+				LittleEndian.putShort(bytes, offset + 6, (short) BOFRecord.TYPE_CHART);
+			}
+			offset += 4 + length;
+		}
+		POIFSFileSystem chart = new POIFSFileSystem();
+		chart.createDocument(new ByteArrayInputStream(bytes), "Workbook");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		chart.writeFilesystem(out);
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	private static ByteArrayInputStream toInputStream(HSSFWorkbook workbook) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		workbook.write(out);
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+}
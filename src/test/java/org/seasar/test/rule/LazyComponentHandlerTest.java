@@ -0,0 +1,43 @@
+package org.seasar.test.rule;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.Test;
+import org.seasar.framework.container.S2Container;
+
+import example.logic.HiddenLogicImpl;
+
+public class LazyComponentHandlerTest {
+
+	@Test
+	public void equalsとhashCodeとtoStringはコンポーネントを取得せずに処理される() {
+		S2Container container = mock(S2Container.class);
+		Object proxy = LazyComponentHandler.createProxy(container, "list", List.class);
+		Object other = LazyComponentHandler.createProxy(container, "list", List.class);
+		assertThat(proxy.equals(proxy), is(true));
+		assertThat(proxy.equals(other), is(false));
+		assertThat(proxy.hashCode(), is(System.identityHashCode(proxy)));
+		assertThat(proxy.toString(), containsString("list"));
+		verify(container, never()).getComponent("list");
+	}
+
+	@Test
+	public void 別パッケージのpackage_privateなインターフェースのメソッドを呼び出せる() throws Exception {
+		S2Container container = mock(S2Container.class);
+		when(container.getComponent("hiddenLogic")).thenReturn(new HiddenLogicImpl());
+		Class<?> type = Class.forName("example.logic.HiddenLogic");
+		Object proxy = LazyComponentHandler.createProxy(container, "hiddenLogic", type);
+		Method method = type.getMethod("execute");
+		method.setAccessible(true);
+		assertThat((String) method.invoke(proxy), is("hidden"));
+	}
+}
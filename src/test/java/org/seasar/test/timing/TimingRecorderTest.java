@@ -0,0 +1,79 @@
+package org.seasar.test.timing;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.seasar.test.context.TestContext;
+import org.seasar.test.rule.S2TestRule;
+
+public class TimingRecorderTest {
+
+	private TimingRecorder timingRecorder;
+
+	public static class FailingRule extends S2TestRule {
+		@Override
+		protected void before(Description description, TestContext testContext) {
+			throw new IllegalStateException("failed");
+		}
+	}
+
+	@Before
+	public void before() {
+		timingRecorder = new TimingRecorder(true);
+	}
+
+	@Test
+	public void writeJson_クラスとメソッドごとに集計される() throws Exception {
+		timingRecorder.setCurrentClass(TimingRecorderTest.class);
+		timingRecorder.record("container.create", 3000000L);
+		timingRecorder.setCurrentMethod("test1");
+		timingRecorder.record("injection", 1000000L);
+		timingRecorder.record("injection", 2000000L);
+		StringBuilder sb = new StringBuilder();
+		timingRecorder.writeJson(sb);
+		String json = sb.toString();
+		assertThat(json, containsString("{\"name\": \"org.seasar.test.timing.TimingRecorderTest\", "
+		        + "\"phases\": {\"container.create\": {\"count\": 1, \"totalMillis\": 3.0, \"maxMillis\": 3.0}}"));
+		assertThat(json, containsString("{\"name\": \"test1\", "
+		        + "\"phases\": {\"injection\": {\"count\": 2, \"totalMillis\": 3.0, \"maxMillis\": 2.0}}}"));
+	}
+
+	@Test
+	public void stop_処理が例外で終了した場合も記録される() throws Throwable {
+		TimingRecorder instance = TimingRecorder.getInstance();
+		boolean enabled = instance.isEnabled();
+		instance.setEnabled(true);
+		try {
+			instance.setCurrentClass(FailingRule.class);
+			Statement statement = new FailingRule().apply(new Statement() {
+				@Override
+				public void evaluate() {
+				}
+			}, Description.EMPTY);
+			try {
+				statement.evaluate();
+				fail();
+			} catch (IllegalStateException expected) {
+			}
+			StringBuilder sb = new StringBuilder();
+			instance.writeJson(sb);
+			assertThat(sb.toString(), containsString("\"testRule.before:FailingRule\": {\"count\": 1"));
+		} finally {
+			instance.setEnabled(enabled);
+			instance.clear();
+		}
+	}
+
+	@Test
+	public void writeJson_記録がない場合() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		timingRecorder.writeJson(sb);
+		assertThat(sb.toString().endsWith("\"classes\": []\n}\n"), is(true));
+	}
+}
@@ -0,0 +1,2 @@
+INSERT INTO EMP (ID, NAME) VALUES (1, 'SCOTT');
+INSERT INTO EMP (ID, NAME) VALUES (2, 'KING');
@@ -0,0 +1,4 @@
+CREATE TABLE EMP (
+  ID INTEGER PRIMARY KEY,
+  NAME VARCHAR(20)
+);